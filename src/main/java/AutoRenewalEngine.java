@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Nightly batch that renews every eligible loan due within a window, so patrons who forget to
+ * renew do not drift into the overdue (4.0) and fine (4.1) rules.
+ *
+ * Patrons are sorted by ID and split into fixed-size partitions that run in parallel. For each
+ * patron the new due dates are worked out first and then written together. A loan is skipped
+ * when the patron fails validatePatronEligibility(), when it is already overdue, or when its
+ * title has pending demand. Completed partitions can be recorded in a checkpoint file so an
+ * interrupted run resumes where it stopped.
+ *
+ * Each renew-or-skip decision holds the patron's monitor, the same lock Patron's loan mutators,
+ * Checkout.returnBook(), CheckoutPipeline and ReplicationLeader take for checkouts and returns,
+ * so circulation can continue while the batch runs. If a partition fails, the remaining ones are
+ * cancelled and run() waits for every worker to stop before it throws. A ReplicationLeader
+ * should call publishAll() afterwards.
+ */
+public class AutoRenewalEngine {
+    private final Checkout checkout;
+    private final int partitionSize;
+    private final int parallelism;
+    private Predicate<String> pendingDemand;
+
+    /**
+     * Counters for one run.
+     */
+    public static class Report {
+        private final LongAdder patronsScanned = new LongAdder();
+        private final LongAdder loansRenewed = new LongAdder();
+        private final LongAdder skippedIneligible = new LongAdder();
+        private final LongAdder skippedPendingDemand = new LongAdder();
+        private int partitions;
+        private int partitionsResumed;
+        private long elapsedMillis;
+
+        public long getPatronsScanned() {
+            return patronsScanned.sum();
+        }
+
+        public long getLoansRenewed() {
+            return loansRenewed.sum();
+        }
+
+        public long getSkippedIneligible() {
+            return skippedIneligible.sum();
+        }
+
+        public long getSkippedPendingDemand() {
+            return skippedPendingDemand.sum();
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public int getPartitionsResumed() {
+            return partitionsResumed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Returns the number of patrons processed per second in this run.
+         *
+         * @return Patron throughput
+         */
+        public double getPatronsPerSecond() {
+            return elapsedMillis == 0 ? getPatronsScanned() * 1000.0 : getPatronsScanned() * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Report[partitions=" + partitions + ",resumed=" + partitionsResumed
+                    + ",patrons=" + getPatronsScanned() + ",renewed=" + getLoansRenewed()
+                    + ",skippedIneligible=" + getSkippedIneligible()
+                    + ",skippedPendingDemand=" + getSkippedPendingDemand()
+                    + ",elapsedMillis=" + elapsedMillis + ",patronsPerSecond=" + (long) getPatronsPerSecond() + "]";
+        }
+    }
+
+    /**
+     * Creates an engine over a Checkout.
+     *
+     * @param checkout The Checkout whose loans are renewed (its clock defines "today")
+     * @param partitionSize Patrons per partition (the unit of parallelism and checkpointing)
+     * @param parallelism Number of worker threads
+     */
+    public AutoRenewalEngine(Checkout checkout, int partitionSize, int parallelism) {
+        if (partitionSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("partitionSize and parallelism must be positive");
+        }
+        this.checkout = checkout;
+        this.partitionSize = partitionSize;
+        this.parallelism = parallelism;
+        // Without a hold queue, a title with no copies on the shelf is the signal that others are waiting
+        this.pendingDemand = isbn -> {
+            Book book = checkout.getInventory().get(isbn);
+            return book != null && !book.isAvailable();
+        };
+    }
+
+    /**
+     * Replaces the rule that decides whether a title has pending demand and must not be renewed.
+     *
+     * @param pendingDemand Returns true for ISBNs that should not be auto-renewed
+     */
+    public void setPendingDemand(Predicate<String> pendingDemand) {
+        this.pendingDemand = pendingDemand;
+    }
+
+    /**
+     * Renews loans due within {@code windowDays} of today, without checkpointing.
+     *
+     * @param windowDays Loans due on or before today + windowDays are considered
+     * @return Run counters
+     * @throws InterruptedException If interrupted while waiting for partitions
+     */
+    public Report run(int windowDays) throws InterruptedException {
+        try {
+            return run(windowDays, null);
+        } catch (IOException e) {
+            throw new IllegalStateException("No checkpoint file was used", e);
+        }
+    }
+
+    /**
+     * Renews loans due within {@code windowDays} of today. Partitions already listed in the
+     * checkpoint file for the same date, window and patron count are skipped.
+     *
+     * @param windowDays Loans due on or before today + windowDays are considered
+     * @param checkpoint File recording completed partitions, or null for no checkpointing
+     * @return Run counters
+     * @throws IOException If the checkpoint file cannot be read or written
+     * @throws InterruptedException If interrupted while waiting for partitions
+     */
+    public Report run(int windowDays, Path checkpoint) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        LocalDate today = checkout.getClock().today();
+        LocalDate lastDue = today.plusDays(windowDays);
+
+        List<Patron> patrons = new ArrayList<>(checkout.getPatrons().values());
+        patrons.sort(Comparator.comparing(Patron::getPatronId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        int partitionCount = (patrons.size() + partitionSize - 1) / partitionSize;
+
+        String header = "date=" + today + " window=" + windowDays + " patrons=" + patrons.size()
+                + " partitionSize=" + partitionSize;
+        Set<Integer> completed = loadCheckpoint(checkpoint, header);
+
+        Report report = new Report();
+        report.partitions = partitionCount;
+        report.partitionsResumed = completed.size();
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "auto-renewal");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < partitionCount; p++) {
+                if (completed.contains(p)) {
+                    continue;
+                }
+                int partition = p;
+                int from = p * partitionSize;
+                List<Patron> slice = patrons.subList(from, Math.min(from + partitionSize, patrons.size()));
+                futures.add(pool.submit(() -> {
+                    for (Patron patron : slice) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return null;
+                        }
+                        renew(patron, today, lastDue, report);
+                    }
+                    markComplete(checkpoint, partition);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                stop(pool, futures);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IllegalStateException("Auto-renewal partition failed", cause);
+            } catch (InterruptedException e) {
+                stop(pool, futures);
+                throw e;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        report.elapsedMillis = System.currentTimeMillis() - start;
+        return report;
+    }
+
+    /**
+     * Cancels the partitions still running or queued and waits until no worker can touch a patron.
+     * Workers check for interruption between patrons, so this waits for at most one renew() each.
+     */
+    private static void stop(ExecutorService pool, List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        pool.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void renew(Patron patron, LocalDate today, LocalDate lastDue, Report report) {
+        report.patronsScanned.increment();
+        synchronized (patron) {
+            renewLocked(patron, today, lastDue, report);
+        }
+    }
+
+    private void renewLocked(Patron patron, LocalDate today, LocalDate lastDue, Report report) {
+        if (checkout.validatePatronEligibility(patron) != 0.0) {
+            report.skippedIneligible.increment();
+            return;
+        }
+        Map<String, LocalDate> renewals = new LinkedHashMap<>();
+        for (Map.Entry<String, LocalDate> loan : patron.getCheckedOutBooks().entrySet()) {
+            LocalDate due = loan.getValue();
+            if (due == null || due.isBefore(today) || due.isAfter(lastDue)) {
+                continue;
+            }
+            if (pendingDemand.test(loan.getKey())) {
+                report.skippedPendingDemand.increment();
+                continue;
+            }
+            Book book = checkout.getInventory().get(loan.getKey());
+            int days = book == null ? patron.getLoanPeriodDays() : patron.getLoanPeriodDays(book.getType());
+            LocalDate newDue = today.plusDays(days);
+            if (newDue.isAfter(due)) {
+                renewals.put(loan.getKey(), newDue);
+            }
+        }
+        for (Map.Entry<String, LocalDate> renewal : renewals.entrySet()) {
+            patron.addCheckedOutBook(renewal.getKey(), renewal.getValue());
+        }
+        report.loansRenewed.add(renewals.size());
+    }
+
+    private static Set<Integer> loadCheckpoint(Path checkpoint, String header) throws IOException {
+        Set<Integer> completed = new HashSet<>();
+        if (checkpoint == null) {
+            return completed;
+        }
+        if (Files.exists(checkpoint)) {
+            List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(header)) {
+                for (String line : lines.subList(1, lines.size())) {
+                    if (!line.isBlank()) {
+                        completed.add(Integer.parseInt(line.trim()));
+                    }
+                }
+                return completed;
+            }
+        }
+        // Missing or from a different run: start over
+        Files.writeString(checkpoint, header + System.lineSeparator(), StandardCharsets.UTF_8);
+        return completed;
+    }
+
+    private static void markComplete(Path checkpoint, int partition) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        synchronized (AutoRenewalEngine.class) {
+            Files.writeString(checkpoint, partition + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+        }
+    }
+}
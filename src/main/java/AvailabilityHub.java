@@ -0,0 +1,378 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pushes availability changes to subscribers instead of having catalog screens poll
+ * Book.isAvailable().
+ *
+ * Watched books report every checkout, return, setAvailableCopies() and resetAvailability()
+ * to the hub, which only marks the ISBN dirty, so circulation pays for one map insert. Once
+ * per window a flusher thread takes the dirty ISBNs and sends one {@link Event} per title
+ * whose shelf count differs from the last one published. A burst of checkouts on one title
+ * therefore becomes a single event with the final count, and a checkout followed by a return
+ * in the same window sends nothing.
+ *
+ * Each subscription has its own bounded queue. When a slow subscriber's queue is full the
+ * oldest event is dropped and counted, so neither circulation nor other subscribers wait.
+ */
+public class AvailabilityHub implements Closeable {
+    private final int queueCapacity;
+    private final Map<String, Book> dirty = new ConcurrentHashMap<>(); // ISBN -> book that last reported
+    private final Map<String, Integer> published = new ConcurrentHashMap<>();
+    private final Map<String, Book> watched = new ConcurrentHashMap<>(); // ISBN -> book currently watched
+    private final Map<String, List<Subscription>> byIsbn = new ConcurrentHashMap<>();
+    private final Map<Book.BookType, List<Subscription>> byType = new EnumMap<>(Book.BookType.class);
+    private final Consumer<Book> listener = this::markDirty;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * A coalesced availability change for one title.
+     */
+    public static final class Event {
+        private final String isbn;
+        private final Book.BookType type;
+        private final int availableCopies;
+        private final int totalCopies;
+        private final long timestampMillis;
+
+        Event(String isbn, Book.BookType type, int availableCopies, int totalCopies, long timestampMillis) {
+            this.isbn = isbn;
+            this.type = type;
+            this.availableCopies = availableCopies;
+            this.totalCopies = totalCopies;
+            this.timestampMillis = timestampMillis;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public Book.BookType getType() {
+            return type;
+        }
+
+        public int getAvailableCopies() {
+            return availableCopies;
+        }
+
+        public int getTotalCopies() {
+            return totalCopies;
+        }
+
+        public boolean isAvailable() {
+            return availableCopies > 0;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Event[isbn=" + isbn + ",type=" + type + ",available=" + availableCopies + "/" + totalCopies + "]";
+        }
+    }
+
+    /**
+     * Interest in a set of ISBNs and book types, with its own bounded event queue.
+     */
+    public final class Subscription implements Closeable {
+        private final Set<String> isbns;
+        private final Set<Book.BookType> types;
+        private final ArrayBlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final LongAdder dropped = new LongAdder();
+
+        private Subscription(Set<String> isbns, Set<Book.BookType> types) {
+            this.isbns = isbns;
+            this.types = types;
+        }
+
+        /**
+         * Returns the next event without waiting.
+         *
+         * @return The oldest queued event, or null if none is queued
+         */
+        public Event poll() {
+            return queue.poll();
+        }
+
+        /**
+         * Waits up to the given time for the next event.
+         *
+         * @param timeout How long to wait
+         * @param unit Unit of {@code timeout}
+         * @return The oldest queued event, or null on timeout
+         * @throws InterruptedException If interrupted while waiting
+         */
+        public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        /**
+         * Moves every queued event into a list.
+         *
+         * @param into Destination list
+         * @return Number of events moved
+         */
+        public int drainTo(Collection<Event> into) {
+            return queue.drainTo(into);
+        }
+
+        /**
+         * Returns how many events were discarded because this subscriber fell behind.
+         *
+         * @return Dropped event count
+         */
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        private void offer(Event event) {
+            while (!queue.offer(event)) {
+                // Keep the newest state; the oldest event for a full queue is the least useful
+                if (queue.poll() != null) {
+                    dropped.increment();
+                }
+            }
+        }
+
+        /**
+         * Stops delivery to this subscription.
+         */
+        @Override
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+
+    /**
+     * Creates a hub and starts its flusher thread.
+     *
+     * @param windowMillis Length of the coalescing window
+     * @param queueCapacity Maximum queued events per subscription
+     */
+    public AvailabilityHub(long windowMillis, int queueCapacity) {
+        if (windowMillis <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("windowMillis and queueCapacity must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        for (Book.BookType type : Book.BookType.values()) {
+            byType.put(type, new CopyOnWriteArrayList<>());
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "availability-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleAtFixedRate(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts reporting a book's availability changes to this hub. For a new ISBN the current
+     * shelf count becomes the baseline, so the first event is sent only when it changes. A
+     * book that replaces another with the same ISBN is published in the next window if its
+     * count differs from the last one sent; watch the replacement before unwatching the book
+     * it replaces.
+     *
+     * @param book The book to watch
+     */
+    public void watch(Book book) {
+        book.setAvailabilityListener(listener);
+        if (book.getIsbn() == null) {
+            return;
+        }
+        watched.put(book.getIsbn(), book);
+        if (published.putIfAbsent(book.getIsbn(), book.getAvailableCopies()) != null) {
+            markDirty(book);
+        }
+    }
+
+    /**
+     * Stops reporting a book's availability changes. Unless another book with the same ISBN is
+     * watched, the hub also forgets the ISBN's last published count.
+     *
+     * @param book The book to stop watching
+     */
+    public void unwatch(Book book) {
+        book.setAvailabilityListener(null);
+        if (book.getIsbn() == null) {
+            return;
+        }
+        removeIfSame(dirty, book);
+        // Under the flush lock, so a flush already holding this book cannot put the count back
+        synchronized (this) {
+            if (removeIfSame(watched, book)) {
+                published.remove(book.getIsbn());
+            }
+        }
+    }
+
+    /**
+     * Subscribes to changes of the given ISBNs and of every title of the given types.
+     * A title matching both is delivered once.
+     *
+     * @param isbns ISBNs of interest (may be empty)
+     * @param types Book types of interest (may be empty)
+     * @return The new subscription
+     */
+    public Subscription subscribe(Set<String> isbns, Set<Book.BookType> types) {
+        Subscription subscription = new Subscription(Set.copyOf(isbns), Set.copyOf(types));
+        for (String isbn : subscription.isbns) {
+            byIsbn.compute(isbn, (k, subscribers) -> {
+                List<Subscription> list = subscribers == null ? new CopyOnWriteArrayList<>() : subscribers;
+                list.add(subscription);
+                return list;
+            });
+        }
+        for (Book.BookType type : subscription.types) {
+            byType.get(type).add(subscription);
+        }
+        return subscription;
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        for (String isbn : subscription.isbns) {
+            // Drop the list with its last subscriber so subscription churn does not leak keys
+            byIsbn.computeIfPresent(isbn, (k, subscribers) -> {
+                subscribers.remove(subscription);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        for (Book.BookType type : subscription.types) {
+            byType.get(type).remove(subscription);
+        }
+    }
+
+    /**
+     * Returns the number of ISBNs with at least one subscription.
+     *
+     * @return Subscribed ISBN count
+     */
+    int getSubscribedIsbnCount() {
+        return byIsbn.size();
+    }
+
+    /**
+     * Returns the number of ISBNs whose last published count is kept.
+     *
+     * @return Published ISBN count
+     */
+    int getPublishedIsbnCount() {
+        return published.size();
+    }
+
+    /**
+     * Removes the book's entry if it maps to this very object; Books with the same ISBN are
+     * equal, so Map.remove(key, value) would also remove a replacement.
+     *
+     * @return true if no entry for the book's ISBN remains
+     */
+    private static boolean removeIfSame(Map<String, Book> map, Book book) {
+        return map.computeIfPresent(book.getIsbn(), (isbn, current) -> current == book ? null : current) == null;
+    }
+
+    private void markDirty(Book book) {
+        if (!closed && book.getIsbn() != null) {
+            notifications.increment();
+            // Keyed by ISBN: the book that reported last is the one in the inventory
+            dirty.put(book.getIsbn(), book);
+        }
+    }
+
+    /**
+     * Publishes the changes collected since the last flush. Runs once per window on the
+     * flusher thread; can also be called directly.
+     */
+    public synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Book> changed = new ArrayList<>(dirty.size());
+        for (Map.Entry<String, Book> entry : dirty.entrySet()) {
+            // Removing before reading the count means a change racing with this flush is
+            // either included now or marks the book dirty again for the next window
+            if (removeIfSame(dirty, entry.getValue())) {
+                changed.add(entry.getValue());
+            }
+        }
+        for (Book book : changed) {
+            String isbn = book.getIsbn();
+            if (watched.get(isbn) != book) {
+                // Unwatched or replaced while its change was in flight
+                continue;
+            }
+            int available = book.getAvailableCopies();
+            Integer previous = published.put(isbn, available);
+            if (previous != null && previous == available) {
+                continue;
+            }
+            Event event = new Event(isbn, book.getType(), available, book.getTotalCopies(), now);
+            events.increment();
+            List<Subscription> forIsbn = byIsbn.get(isbn);
+            if (forIsbn != null) {
+                for (Subscription subscription : forIsbn) {
+                    subscription.offer(event);
+                }
+            }
+            List<Subscription> forType = book.getType() == null ? null : byType.get(book.getType());
+            if (forType != null) {
+                for (Subscription subscription : forType) {
+                    if (!subscription.isbns.contains(isbn)) {
+                        subscription.offer(event);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how many availability changes books reported to the hub.
+     *
+     * @return Raw change notifications
+     */
+    public long getNotificationCount() {
+        return notifications.sum();
+    }
+
+    /**
+     * Returns how many coalesced events were published.
+     *
+     * @return Published events
+     */
+    public long getEventCount() {
+        return events.sum();
+    }
+
+    /**
+     * Stops the flusher after publishing any pending changes. Watched books keep their
+     * listener but their changes are ignored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -1,19 +1,20 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Represents a book in the library system.
  * Books have ISBN numbers, metadata, and availability status.
+ * Each physical copy is tracked individually; copy IDs run from 0 to getTotalCopies() - 1.
  */
 public class Book {
     private String isbn;
     private String title;
     private String author;
     private BookType type;
-    private boolean available;
     private boolean referenceOnly;
     private int totalCopies;
-    private int availableCopies;
+    private final CopySet copies;
+    private volatile boolean available; // checkAvailability() flag, kept as before copy tracking
+    private volatile Consumer<Book> availabilityListener; // notified after the shelf count may have changed
 
     public enum BookType {
         FICTION,
@@ -33,7 +34,8 @@ public class Book {
      * @param totalCopies Total number of copies owned by library
      */
     public Book(String isbn, String title, String author, BookType type, int totalCopies) {
-        this.isbn = isbn;
+        // The ISBN is repeated in every loan map; titles and authors are held once per Book
+        this.isbn = StringPool.CATALOG.intern(isbn);
         this.title = title;
         this.author = author;
         this.type = type;
@@ -41,13 +43,8 @@ public class Book {
         this.referenceOnly = (type == BookType.REFERENCE);
 
         // Reference books never circulate - always unavailable for checkout
-        if (this.referenceOnly) {
-            this.availableCopies = 0;
-            this.available = false;
-        } else {
-            this.availableCopies = totalCopies;
-            this.available = true;
-        }
+        this.copies = new CopySet(totalCopies, this.referenceOnly ? 0 : Math.max(0, totalCopies));
+        this.available = !this.referenceOnly;
     }
 
     // Getters
@@ -68,7 +65,7 @@ public class Book {
     }
 
     public boolean isAvailable() {
-        return availableCopies > 0;
+        return copies.available() > 0;
     }
 
     public boolean isReferenceOnly() {
@@ -80,44 +77,155 @@ public class Book {
     }
 
     public int getAvailableCopies() {
-        return availableCopies;
+        return copies.available();
+    }
+
+    /**
+     * Checks whether a specific copy is on the shelf.
+     *
+     * @param copyId The copy ID
+     * @return true if that copy is available
+     */
+    public boolean isCopyAvailable(int copyId) {
+        return copies.isOnShelf(copyId);
+    }
+
+    /**
+     * Returns the barcode printed on a copy (format: ISBN/copy number, starting at 1).
+     *
+     * @param copyId The copy ID
+     * @return The copy's barcode
+     */
+    public String getCopyBarcode(int copyId) {
+        return isbn + "/" + (copyId + 1);
+    }
+
+    /**
+     * Returns the copy ID for a barcode produced by getCopyBarcode().
+     *
+     * @param barcode The scanned barcode
+     * @return The copy ID, or -1 if the barcode does not belong to this book
+     */
+    public int getCopyId(String barcode) {
+        if (barcode == null || isbn == null || !barcode.startsWith(isbn + "/")) {
+            return -1;
+        }
+        try {
+            int copyId = Integer.parseInt(barcode.substring(isbn.length() + 1)) - 1;
+            return copyId >= 0 && copyId < copies.capacity() ? copyId : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     // Setters
+
+    /**
+     * Sets how many copies are on the shelf. The first {@code copies} copies are marked
+     * available and the rest checked out. This is a manual correction and should not run
+     * at the same time as checkouts or returns of this book.
+     *
+     * Each copy is tracked individually, so a count below 0 or above the number of tracked
+     * copies is clamped into that range.
+     *
+     * @param copies Number of available copies
+     */
     public void setAvailableCopies(int copies) {
-        this.availableCopies = copies;
-        this.available = (copies > 0);
+        int count = Math.max(0, Math.min(copies, this.copies.capacity()));
+        this.copies.setAvailable(count);
+        this.available = count > 0;
+        availabilityChanged();
     }
 
     /**
      * Decrements available copies when book is checked out.
      */
     public void checkout() {
-        if (availableCopies > 0) {
-            availableCopies--;
+        checkoutCopy();
+    }
+
+    /**
+     * Takes the lowest-numbered copy off the shelf.
+     *
+     * @return The copy ID that was checked out, or -1 if no copy is available
+     */
+    public int checkoutCopy() {
+        int copyId = copies.claim();
+        this.available = isAvailable();
+        if (copyId >= 0) {
+            availabilityChanged();
         }
-        this.available = (availableCopies > 0);
+        return copyId;
     }
 
     /**
      * Increments available copies when book is returned.
+     * Puts back the lowest-numbered copy that is out. Does nothing if every copy is already
+     * in, so the count never exceeds getTotalCopies() (it used to be capped at 100 instead).
      */
     public void returnBook() {
-        if (availableCopies < 100) {
-            availableCopies++;
+        if (copies.releaseAny() >= 0) {
+            availabilityChanged();
         }
-        this.available = (availableCopies > 0);
+        this.available = isAvailable();
+    }
+
+    /**
+     * Puts a specific copy back on the shelf.
+     *
+     * @param copyId The copy being returned
+     * @return true if the copy was checked out and is now available
+     */
+    public boolean returnCopy(int copyId) {
+        if (copies.release(copyId)) {
+            this.available = true;
+            availabilityChanged();
+            return true;
+        }
+        return false;
     }
 
     public void resetAvailability() {
-        this.availableCopies = this.totalCopies;
+        copies.setAvailable(copies.capacity());
         this.available = true;
+        availabilityChanged();
     }
 
     public boolean checkAvailability() {
         return this.available;
     }
 
+    long[] getCopyBitmap() {
+        return copies.toLongArray();
+    }
+
+    int getCopyCapacity() {
+        return copies.capacity();
+    }
+
+    void restoreCopyBitmap(int capacity, long[] bitmap) {
+        copies.restore(capacity, bitmap);
+        this.available = isAvailable();
+        availabilityChanged();
+    }
+
+    /**
+     * Registers the callback run after every change to the copies on the shelf
+     * (see {@link AvailabilityHub}). Only one listener is kept; null removes it.
+     *
+     * @param listener Callback receiving this book
+     */
+    void setAvailabilityListener(Consumer<Book> listener) {
+        this.availabilityListener = listener;
+    }
+
+    private void availabilityChanged() {
+        Consumer<Book> listener = availabilityListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -140,6 +248,6 @@ public class Book {
 
     @Override
     public String toString() {
-        return "Book[isbn=" + isbn + ",title=" + title + ",author=" + author + ",type=" + type + ",availableCopies=" + availableCopies + "/" + totalCopies + "]";
+        return "Book[isbn=" + isbn + ",title=" + title + ",author=" + author + ",type=" + type + ",availableCopies=" + getAvailableCopies() + "/" + totalCopies + "]";
     }
 }
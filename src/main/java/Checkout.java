@@ -1,9 +1,15 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Manages library checkout operations.
@@ -12,41 +18,325 @@ import java.util.Map;
 public class Checkout {
     public static double MAX_FINE_AMOUNT = 25.0;
 
-    private Map<String, Book> bookList; // ISBN -> Book
-    private Map<String, Patron> patrons; // PatronID -> Patron
+    private Inventory bookList; // ISBN -> Book
+    private PatronRegistry patrons; // PatronID -> Patron, array-indexed for P-XXXXX IDs
     private List<Transaction> history; //
+    private MembershipFilter bookFilter; // optional fast-reject for unknown ISBNs
+    private MembershipFilter patronFilter; // optional fast-reject for unknown patron IDs
+    private long bookFilterKeys; // bookList key insertions already reflected in bookFilter
+    private long patronFilterKeys; // patrons key insertions already reflected in patronFilter
+    private DueDateIndex dueDates; // loans by due date, fed by registered patrons
+    private AvailabilityHub availability; // optional push of shelf-count changes to subscribers
+    private final LibraryClock clock;
+    private final AtomicReference<LoanPolicy> loanPolicy = new AtomicReference<>(); // null follows LoanPolicy.active()
 
     /**
      * Inner class to track checkout transactions.
      */
-    private static class Transaction {
+    static class Transaction {
         Patron patron;
         Book book;
         LocalDate checkoutDate;
         LocalDate dueDate;
         LocalDate returnDate;
+        int copyId;
 
         Transaction(Patron patron, Book book, LocalDate checkoutDate, LocalDate dueDate) {
             this.patron = patron;
             this.book = book;
+            this.copyId = patron == null || book == null ? -1 : patron.getCheckedOutCopy(book.getIsbn());
             this.checkoutDate = checkoutDate;
             this.dueDate = dueDate;
             this.returnDate = null;
         }
     }
 
+    /**
+     * Inventory map that counts key insertions, so lookups can tell when a key was added
+     * around addBook() even if a removal left the size unchanged.
+     */
+    private static final class Inventory extends HashMap<String, Book> {
+        private static final long serialVersionUID = 1L;
+
+        private long keysAdded;
+
+        long getKeysAdded() {
+            return keysAdded;
+        }
+
+        private void counted(int before) {
+            if (size() > before) {
+                keysAdded++;
+            }
+        }
+
+        @Override
+        public Book put(String key, Book value) {
+            int before = size();
+            Book previous = super.put(key, value);
+            counted(before);
+            return previous;
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends Book> m) {
+            for (Map.Entry<? extends String, ? extends Book> e : m.entrySet()) {
+                put(e.getKey(), e.getValue());
+            }
+        }
+
+        @Override
+        public Book putIfAbsent(String key, Book value) {
+            int before = size();
+            Book previous = super.putIfAbsent(key, value);
+            counted(before);
+            return previous;
+        }
+
+        @Override
+        public Book computeIfAbsent(String key, Function<? super String, ? extends Book> f) {
+            int before = size();
+            Book book = super.computeIfAbsent(key, f);
+            counted(before);
+            return book;
+        }
+
+        @Override
+        public Book compute(String key, BiFunction<? super String, ? super Book, ? extends Book> f) {
+            int before = size();
+            Book book = super.compute(key, f);
+            counted(before);
+            return book;
+        }
+
+        @Override
+        public Book merge(String key, Book value, BiFunction<? super Book, ? super Book, ? extends Book> f) {
+            int before = size();
+            Book book = super.merge(key, value, f);
+            counted(before);
+            return book;
+        }
+    }
+
     public Checkout() {
-        this.bookList = new HashMap<>();
-        this.patrons = new HashMap<>();
+        this(LibraryClock.getDefault());
+    }
+
+    /**
+     * Creates a Checkout that takes "today" from the given clock.
+     *
+     * @param clock Source of the current date for due dates, overdue checks and fines
+     */
+    public Checkout(LibraryClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        this.clock = clock;
+        this.bookList = new Inventory();
+        this.patrons = new PatronRegistry();
         this.history = new ArrayList<>();
+        this.dueDates = new DueDateIndex();
+    }
+
+    /**
+     * Records an open checkout transaction in the history.
+     *
+     * @param patron The borrowing patron
+     * @param book The borrowed book
+     * @param checkoutDate Date of checkout
+     * @param dueDate Date the book is due
+     */
+    void recordTransaction(Patron patron, Book book, LocalDate checkoutDate, LocalDate dueDate) {
+        history.add(new Transaction(patron, book, checkoutDate, dueDate));
+    }
+
+    /**
+     * Returns the transactions that have not been returned yet, oldest first.
+     *
+     * @return Open transactions
+     */
+    List<Transaction> getOpenTransactions() {
+        List<Transaction> open = new ArrayList<>();
+        for (Transaction t : history) {
+            if (t.returnDate == null) {
+                open.add(t);
+            }
+        }
+        return open;
     }
 
     public void addBook(Book book) {
-        bookList.put(book.getIsbn(), book);
+        Book previous = bookList.put(book.getIsbn(), book);
+        if (previous == null && bookFilter != null) {
+            bookFilter.add(book.getIsbn());
+            bookFilterKeys++;
+        }
+        if (availability != null) {
+            availability.watch(book);
+            if (previous != null && previous != book) {
+                // The replaced object must not keep publishing counts for this ISBN
+                availability.unwatch(previous);
+            }
+        }
     }
 
     public void registerPatron(Patron patron) {
-        patrons.put(patron.getPatronId(), patron);
+        if (patrons.put(patron.getPatronId(), patron) == null && patronFilter != null) {
+            patronFilter.add(patron.getPatronId());
+            patronFilterKeys++;
+        }
+        patron.setLoanIndex(dueDates);
+        patron.setBranchPolicy(loanPolicy);
+        dueDates.indexLoans(patron);
+    }
+
+    /**
+     * Returns the loan policy for patrons registered with this Checkout.
+     *
+     * @return This branch's own policy, or the JVM-wide active policy if it has none
+     */
+    public LoanPolicy getLoanPolicy() {
+        LoanPolicy policy = loanPolicy.get();
+        return policy == null ? LoanPolicy.active() : policy;
+    }
+
+    /**
+     * Gives this Checkout its own loan policy, so one branch can use different limits from
+     * the others. The swap is atomic and applies to registered patrons immediately.
+     *
+     * @param policy The branch policy, or null to follow LoanPolicy.active() again
+     * @return The branch policy that was replaced, or null if there was none
+     */
+    public LoanPolicy setLoanPolicy(LoanPolicy policy) {
+        return loanPolicy.getAndSet(policy);
+    }
+
+    /**
+     * Loads a config file and makes it this Checkout's own policy. The current policy stays
+     * in effect if the file cannot be read or contains an invalid entry.
+     *
+     * @param file The properties file to load
+     * @return The new branch policy
+     * @throws IOException If the file cannot be read
+     */
+    public LoanPolicy reloadLoanPolicy(Path file) throws IOException {
+        LoanPolicy policy = LoanPolicy.load(file);
+        loanPolicy.set(policy);
+        return policy;
+    }
+
+    /**
+     * Reports availability changes of every book in the inventory, including books added
+     * later, to a hub that pushes them to subscribers.
+     *
+     * @param hub The hub to report to, or null to stop reporting
+     */
+    public void setAvailabilityHub(AvailabilityHub hub) {
+        for (Book book : bookList.values()) {
+            if (hub != null) {
+                hub.watch(book);
+            } else if (availability != null) {
+                availability.unwatch(book);
+            }
+        }
+        this.availability = hub;
+    }
+
+    public AvailabilityHub getAvailabilityHub() {
+        return availability;
+    }
+
+    public DueDateIndex getDueDateIndex() {
+        return dueDates;
+    }
+
+    public LibraryClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Puts membership filters in front of ISBN and patron ID lookups so that mistyped or
+     * foreign barcodes are rejected without a map lookup. Existing entries are loaded into
+     * the new filters. Books and patrons must be added through addBook() and registerPatron()
+     * to keep the filters current; a key added directly to getInventory() or getPatrons() is
+     * detected through the maps' insertion counts and triggers a rebuild on the next lookup.
+     *
+     * @param expectedBooks Expected number of distinct ISBNs
+     * @param expectedPatrons Expected number of distinct patron IDs
+     */
+    public void enableLookupFilters(int expectedBooks, int expectedPatrons) {
+        this.bookFilter = buildFilter(bookList.keySet(), expectedBooks);
+        this.bookFilterKeys = bookList.getKeysAdded();
+        this.patronFilter = buildFilter(patrons.keySet(), expectedPatrons);
+        this.patronFilterKeys = patrons.getKeysAdded();
+    }
+
+    public MembershipFilter getBookFilter() {
+        return bookFilter;
+    }
+
+    public MembershipFilter getPatronFilter() {
+        return patronFilter;
+    }
+
+    /**
+     * Looks up a book by ISBN, rejecting unknown ISBNs through the lookup filter when enabled.
+     *
+     * @param isbn The ISBN to look up
+     * @return The book, or null if the ISBN is not in inventory
+     */
+    public Book findBook(String isbn) {
+        if (bookFilter != null) {
+            if (bookFilterKeys != bookList.getKeysAdded()) {
+                MembershipFilter rebuilt = buildFilter(bookList.keySet(), bookList.size());
+                rebuilt.carryCountsFrom(bookFilter);
+                bookFilter = rebuilt;
+                bookFilterKeys = bookList.getKeysAdded();
+            }
+            if (!bookFilter.mightContain(isbn)) {
+                return null;
+            }
+            Book book = bookList.get(isbn);
+            if (book == null) {
+                bookFilter.recordFalsePositive();
+            }
+            return book;
+        }
+        return bookList.get(isbn);
+    }
+
+    /**
+     * Looks up a patron by ID, rejecting unknown IDs through the lookup filter when enabled.
+     *
+     * @param patronId The patron ID to look up
+     * @return The patron, or null if the ID is not registered
+     */
+    public Patron findPatron(String patronId) {
+        if (patronFilter != null) {
+            if (patronFilterKeys != patrons.getKeysAdded()) {
+                MembershipFilter rebuilt = buildFilter(patrons.keySet(), patrons.size());
+                rebuilt.carryCountsFrom(patronFilter);
+                patronFilter = rebuilt;
+                patronFilterKeys = patrons.getKeysAdded();
+            }
+            if (!patronFilter.mightContain(patronId)) {
+                return null;
+            }
+            Patron patron = patrons.get(patronId);
+            if (patron == null) {
+                patronFilter.recordFalsePositive();
+            }
+            return patron;
+        }
+        return patrons.get(patronId);
+    }
+
+    private static MembershipFilter buildFilter(Collection<String> keys, int expectedKeys) {
+        MembershipFilter filter = new MembershipFilter(Math.max(expectedKeys, keys.size()));
+        for (String key : keys) {
+            filter.add(key);
+        }
+        return filter;
     }
 
     /**
@@ -255,17 +545,27 @@ public class Checkout {
      * @return Fine amount charged (0.0 if not overdue)
      */
     public double returnBook(String isbn, Patron patron) {
-        if (patron == null || !patron.hasBookCheckedOut(isbn)) {
+        if (patron == null) {
             return -1.0;
         }
+        // Same lock as the patron's own loan mutators, so a concurrent renewal sees the loan or its absence
+        synchronized (patron) {
+            return returnLoan(isbn, patron);
+        }
+    }
 
-        Book book = bookList.get(isbn);
+    private double returnLoan(String isbn, Patron patron) {
+        if (!patron.hasBookCheckedOut(isbn)) {
+            return -1.0;
+        }
+
+        Book book = findBook(isbn);
         if (book == null) {
             return -1.0;
         }
 
         LocalDate dueDate = patron.getCheckedOutBooks().get(isbn);
-        LocalDate today = LocalDate.now();
+        LocalDate today = clock.today();
         long daysOverdue = ChronoUnit.DAYS.between(dueDate, today);
 
         double fine = 0.0;
@@ -274,9 +574,12 @@ public class Checkout {
             patron.addFine(fine);
         }
 
-        // Update patron and book
+        // Update patron and book; put back the exact copy when it is known
+        int copyId = patron.getCheckedOutCopy(isbn);
         patron.removeCheckedOutBook(isbn);
-        book.returnBook();
+        if (copyId < 0 || !book.returnCopy(copyId)) {
+            book.returnBook();
+        }
 
         // Update transaction history to mark book as returned
         for (Transaction t : history) {
@@ -289,6 +592,28 @@ public class Checkout {
         return fine;
     }
 
+    /**
+     * Recomputes every registered patron's overdue count from their loan due dates,
+     * as of the clock's current date.
+     *
+     * @return Total number of overdue loans across all patrons
+     */
+    public int updateOverdueCounts() {
+        long today = clock.epochDay();
+        int total = 0;
+        for (Patron patron : patrons.values()) {
+            int overdue = 0;
+            for (LocalDate dueDate : patron.getCheckedOutBooks().values()) {
+                if (dueDate != null && dueDate.toEpochDay() < today) {
+                    overdue++;
+                }
+            }
+            patron.setOverdueCount(overdue);
+            total += overdue;
+        }
+        return total;
+    }
+
     /**
      * Counts available books of a specific type in inventory.
      * Useful for inventory management and reporting.
@@ -0,0 +1,478 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-writer execution mode for Checkout mutations.
+ *
+ * Callers submit commands into a preallocated ring buffer and receive a future for the result.
+ * One writer thread applies the commands to the wrapped Checkout in sequence order, so the
+ * Book and Patron model is only ever mutated by that thread and needs no locks. Listeners
+ * (journaling, metrics) run on a separate consumer thread that trails the writer and sees
+ * each applied command in the same order, with an end-of-batch flag so they can flush once
+ * per batch instead of once per command.
+ *
+ * Read-only calls on the wrapped Checkout from other threads are not synchronized with the
+ * writer; route everything that mutates state through the pipeline.
+ */
+public class CheckoutPipeline implements AutoCloseable {
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 20_000L;
+
+    public enum CommandType {
+        CHECKOUT,
+        RENEW,
+        RETURN,
+        ADD_FINE,
+        PAY_FINE
+    }
+
+    /**
+     * Receives applied commands in sequence order on the consumer thread.
+     */
+    public interface CommandListener {
+        /**
+         * Called once per applied command.
+         *
+         * @param command The applied command (only valid for the duration of the call)
+         * @param sequence The command's position in the pipeline
+         * @param endOfBatch true if this is the last command currently available
+         */
+        void onCommand(Command command, long sequence, boolean endOfBatch);
+    }
+
+    /**
+     * A reusable ring buffer slot. Fields are overwritten when the slot is reused.
+     */
+    public static final class Command {
+        private CommandType type;
+        private Book book;
+        private Patron patron;
+        private String isbn;
+        private double amount;
+        private double result;
+        private boolean failed;
+        private CompletableFuture<Double> future;
+
+        public CommandType getType() {
+            return type;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public Patron getPatron() {
+            return patron;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public double getResult() {
+            return result;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    private final Checkout checkout;
+    private final Command[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong applied = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private final List<CommandListener> listeners;
+    private final LongAdder listenerFailures = new LongAdder();
+    private volatile BiConsumer<Long, RuntimeException> listenerErrorHandler;
+    private final Thread writer;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts a pipeline over an existing Checkout.
+     *
+     * @param checkout The Checkout to mutate (should not be mutated by anything else afterwards)
+     * @param bufferSize Ring buffer capacity, rounded up to a power of two
+     * @param listeners Consumers that see every applied command after the writer
+     */
+    public CheckoutPipeline(Checkout checkout, int bufferSize, CommandListener... listeners) {
+        if (checkout == null) {
+            throw new IllegalArgumentException("checkout must not be null");
+        }
+        int size = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.checkout = checkout;
+        this.ring = new Command[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Command();
+        }
+        this.mask = size - 1;
+        long[] initial = new long[size];
+        Arrays.fill(initial, -1L);
+        this.published = new AtomicLongArray(initial);
+        this.listeners = new ArrayList<>(Arrays.asList(listeners));
+
+        this.writer = new Thread(this::runWriter, "checkout-writer");
+        this.writer.setDaemon(true);
+        this.consumer = this.listeners.isEmpty() ? null : new Thread(this::runConsumer, "checkout-consumer");
+        this.writer.start();
+        if (consumer != null) {
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+    }
+
+    /**
+     * Submits a checkout; the future completes with the checkoutBook() return code.
+     *
+     * @param book The book to check out
+     * @param patron The patron checking it out
+     * @return Future for the return code
+     */
+    public CompletableFuture<Double> submitCheckout(Book book, Patron patron) {
+        return submit(CommandType.CHECKOUT, book, patron, null, 0.0);
+    }
+
+    /**
+     * Submits a renewal of a book the patron already holds. The future completes with the
+     * checkoutBook() return code, or -1.0 if the patron does not have the book.
+     *
+     * @param book The book to renew
+     * @param patron The patron renewing it
+     * @return Future for the return code
+     */
+    public CompletableFuture<Double> submitRenewal(Book book, Patron patron) {
+        return submit(CommandType.RENEW, book, patron, null, 0.0);
+    }
+
+    /**
+     * Submits a return; the future completes with the returnBook() fine (or -1.0).
+     *
+     * @param isbn The ISBN being returned
+     * @param patron The patron returning it
+     * @return Future for the fine charged
+     */
+    public CompletableFuture<Double> submitReturn(String isbn, Patron patron) {
+        return submit(CommandType.RETURN, null, patron, isbn, 0.0);
+    }
+
+    /**
+     * Submits a fine; the future completes with the patron's new balance.
+     *
+     * @param patron The patron to fine
+     * @param amount Fine amount
+     * @return Future for the new fine balance
+     */
+    public CompletableFuture<Double> submitFine(Patron patron, double amount) {
+        return submit(CommandType.ADD_FINE, null, patron, null, amount);
+    }
+
+    /**
+     * Submits a fine payment; the future completes with the patron's remaining balance.
+     *
+     * @param patron The patron paying
+     * @param amount Amount paid
+     * @return Future for the remaining balance
+     */
+    public CompletableFuture<Double> submitPayment(Patron patron, double amount) {
+        return submit(CommandType.PAY_FINE, null, patron, null, amount);
+    }
+
+    /**
+     * Returns the sequence of the last command applied by the writer.
+     *
+     * @return Last applied sequence, or -1 if none
+     */
+    public long getAppliedSequence() {
+        return applied.get();
+    }
+
+    /**
+     * Sets a callback for exceptions thrown by listeners. It runs on the consumer thread with
+     * the sequence of the command the listener failed on; exceptions it throws are ignored.
+     *
+     * @param handler The callback, or null to only count failures
+     */
+    public void setListenerErrorHandler(BiConsumer<Long, RuntimeException> handler) {
+        this.listenerErrorHandler = handler;
+    }
+
+    /**
+     * Returns how many times a listener threw instead of handling a command.
+     *
+     * @return Listener failure count
+     */
+    public long getListenerFailureCount() {
+        return listenerFailures.sum();
+    }
+
+    /**
+     * Stops accepting commands, applies everything already submitted, and waits for the
+     * writer and consumer threads to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        while (activeProducers.get() > 0) {
+            Thread.onSpinWait();
+        }
+        joinQuietly(writer);
+        if (consumer != null) {
+            joinQuietly(consumer);
+        }
+    }
+
+    private CompletableFuture<Double> submit(CommandType type, Book book, Patron patron, String isbn, double amount) {
+        activeProducers.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            long seq = claimed.incrementAndGet();
+            long wrapPoint = seq - ring.length;
+            int idle = 0;
+            // The slot was last used by wrapPoint; it is free once listeners are past it
+            while (wrapPoint > gatingSequence()) {
+                idle = idle(idle);
+            }
+
+            CompletableFuture<Double> future = new CompletableFuture<>();
+            Command cmd = ring[(int) seq & mask];
+            cmd.type = type;
+            cmd.book = book;
+            cmd.patron = patron;
+            cmd.isbn = isbn;
+            cmd.amount = amount;
+            cmd.result = 0.0;
+            cmd.failed = false;
+            cmd.future = future;
+            published.set((int) seq & mask, seq);
+            return future;
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    private long gatingSequence() {
+        return consumer == null ? applied.get() : consumed.get();
+    }
+
+    private void runWriter() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            long available = next - 1;
+            while (published.get((int) (available + 1) & mask) == available + 1) {
+                available++;
+            }
+            if (available < next) {
+                if (!running && activeProducers.get() == 0 && claimed.get() < next) {
+                    return;
+                }
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (long seq = next; seq <= available; seq++) {
+                Command cmd = ring[(int) seq & mask];
+                CompletableFuture<Double> future = cmd.future;
+                try {
+                    cmd.result = apply(cmd);
+                    future.complete(cmd.result);
+                } catch (RuntimeException e) {
+                    cmd.failed = true;
+                    future.completeExceptionally(e);
+                }
+            }
+            applied.set(available);
+            next = available + 1;
+        }
+    }
+
+    private double apply(Command cmd) {
+        switch (cmd.type) {
+            case CHECKOUT:
+                if (cmd.patron == null) {
+                    return checkout.checkoutBook(cmd.book, null);
+                }
+                synchronized (cmd.patron) {
+                    return checkout.checkoutBook(cmd.book, cmd.patron);
+                }
+            case RENEW:
+                if (cmd.book == null || cmd.patron == null) {
+                    return -1.0;
+                }
+                // Loan changes hold the patron's monitor, which AutoRenewalEngine takes as well
+                synchronized (cmd.patron) {
+                    if (!cmd.patron.hasBookCheckedOut(cmd.book.getIsbn())) {
+                        return -1.0;
+                    }
+                    return checkout.checkoutBook(cmd.book, cmd.patron);
+                }
+            case RETURN:
+                return checkout.returnBook(cmd.isbn, cmd.patron);
+            case ADD_FINE:
+                cmd.patron.addFine(cmd.amount);
+                return cmd.patron.getFineBalance();
+            case PAY_FINE:
+                return cmd.patron.payFine(cmd.amount);
+            default:
+                throw new IllegalStateException("Unknown command type: " + cmd.type);
+        }
+    }
+
+    private void runConsumer() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            long available = applied.get();
+            if (available < next) {
+                if (!writer.isAlive() && applied.get() < next) {
+                    return;
+                }
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (long seq = next; seq <= available; seq++) {
+                Command cmd = ring[(int) seq & mask];
+                for (CommandListener listener : listeners) {
+                    try {
+                        listener.onCommand(cmd, seq, seq == available);
+                    } catch (RuntimeException e) {
+                        // A failing listener must not stop the others or stall producers
+                        listenerFailed(seq, e);
+                    }
+                }
+            }
+            consumed.set(available);
+            next = available + 1;
+        }
+    }
+
+    private void listenerFailed(long sequence, RuntimeException e) {
+        listenerFailures.increment();
+        BiConsumer<Long, RuntimeException> handler = listenerErrorHandler;
+        if (handler != null) {
+            try {
+                handler.accept(sequence, e);
+            } catch (RuntimeException ignored) {
+                // The consumer thread has to keep going
+            }
+        }
+    }
+
+    private static int idle(int count) {
+        if (count < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return count + 1;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Listener that counts applied commands per type and tracks batch sizes.
+     */
+    public static class Metrics implements CommandListener {
+        private final LongAdder[] counts = new LongAdder[CommandType.values().length];
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private long batchSize;
+        private volatile long maxBatchSize;
+
+        public Metrics() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public void onCommand(Command command, long sequence, boolean endOfBatch) {
+            counts[command.getType().ordinal()].increment();
+            if (command.isFailed()) {
+                failures.increment();
+            }
+            batchSize++;
+            if (endOfBatch) {
+                batches.increment();
+                if (batchSize > maxBatchSize) {
+                    maxBatchSize = batchSize;
+                }
+                batchSize = 0;
+            }
+        }
+
+        public long getCount(CommandType type) {
+            return counts[type.ordinal()].sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        public long getBatchCount() {
+            return batches.sum();
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize;
+        }
+    }
+
+    /**
+     * Listener that appends one line per applied command to a Writer and flushes once per batch.
+     */
+    public static class Journal implements CommandListener {
+        private final Writer out;
+
+        public Journal(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void onCommand(Command command, long sequence, boolean endOfBatch) {
+            try {
+                out.write(sequence + "\t" + command.getType()
+                        + "\t" + (command.getPatron() == null ? "" : command.getPatron().getPatronId())
+                        + "\t" + (command.getBook() != null ? command.getBook().getIsbn()
+                                : command.getIsbn() == null ? "" : command.getIsbn())
+                        + "\t" + command.getAmount()
+                        + "\t" + (command.isFailed() ? "FAILED" : String.valueOf(command.getResult()))
+                        + System.lineSeparator());
+                if (endOfBatch) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
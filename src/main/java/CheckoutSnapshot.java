@@ -0,0 +1,481 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned binary snapshot of a full Checkout: inventory, patrons with their loans,
+ * fines and flags, and open transactions.
+ *
+ * Layout (big-endian fixed-width header, varint-encoded records):
+ *   int magic, int version, int sectionCount, then per section: long offset, long length
+ *   Sections: STRINGS, BOOKS, PATRONS, TRANSACTIONS
+ *   Each section: int chunkCount, per chunk: int byteLength, int recordCount, then chunk data
+ *
+ * Version 2 adds each book's copy availability bitmap and the copy ID of each loan; version 1
+ * snapshots are still readable and restore copy counts only.
+ *
+ * ISBNs, titles, names and emails are stored once in the string table and referenced by index.
+ * Sections are split into independent chunks so the reader can decode them in parallel from
+ * a memory-mapped file.
+ */
+public final class CheckoutSnapshot {
+    static final int MAGIC = 0x4C494253; // "LIBS"
+    static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_COPIES = 1;
+
+    private static final int SECTION_STRINGS = 0;
+    private static final int SECTION_BOOKS = 1;
+    private static final int SECTION_PATRONS = 2;
+    private static final int SECTION_TRANSACTIONS = 3;
+    private static final int SECTION_COUNT = 4;
+    private static final int HEADER_BYTES = 12 + SECTION_COUNT * 16;
+    private static final int CHUNK_RECORDS = 65_536;
+
+    private static final Book.BookType[] BOOK_TYPES = Book.BookType.values();
+    private static final Patron.PatronType[] PATRON_TYPES = Patron.PatronType.values();
+
+    private CheckoutSnapshot() {
+    }
+
+    /**
+     * Writes the full state of a Checkout to a snapshot file. The file is written next to the
+     * target and moved into place, so readers never see a partial snapshot.
+     *
+     * @param checkout The Checkout to snapshot
+     * @param file The destination file
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Checkout checkout, Path file) throws IOException {
+        StringTable strings = new StringTable();
+
+        Section books = new Section();
+        for (Book book : checkout.getInventory().values()) {
+            Encoder out = books.nextRecord();
+            out.writeVarint(strings.ref(book.getIsbn()));
+            out.writeVarint(strings.ref(book.getTitle()));
+            out.writeVarint(strings.ref(book.getAuthor()));
+            out.writeVarint(book.getType() == null ? 0 : book.getType().ordinal() + 1);
+            out.writeSigned(book.getTotalCopies());
+            out.writeSigned(book.getAvailableCopies());
+            long[] bitmap = book.getCopyBitmap();
+            out.writeVarint(book.getCopyCapacity());
+            out.writeVarint(bitmap.length);
+            for (long word : bitmap) {
+                out.writeLong(word);
+            }
+        }
+
+        Section patrons = new Section();
+        for (Patron patron : checkout.getPatrons().values()) {
+            Encoder out = patrons.nextRecord();
+            out.writeVarint(strings.ref(patron.getPatronId()));
+            out.writeVarint(strings.ref(patron.getName()));
+            out.writeVarint(strings.ref(patron.getEmail()));
+            out.writeVarint(patron.getType() == null ? 0 : patron.getType().ordinal() + 1);
+            out.writeVarint(patron.isAccountSuspended() ? 1 : 0);
+            out.writeSigned(patron.getOverdueCount());
+            out.writeLong(Double.doubleToLongBits(patron.getFineBalance()));
+            out.writeDate(patron.getMemberSince());
+            Map<String, LocalDate> loans = patron.getCheckedOutBooks();
+            out.writeVarint(loans.size());
+            for (Map.Entry<String, LocalDate> loan : loans.entrySet()) {
+                out.writeVarint(strings.ref(loan.getKey()));
+                out.writeDate(loan.getValue());
+                out.writeSigned(patron.getCheckedOutCopy(loan.getKey()));
+            }
+        }
+
+        Section transactions = new Section();
+        for (Checkout.Transaction t : checkout.getOpenTransactions()) {
+            // Only transactions that can be resolved again on load are kept
+            if (t.patron == null || t.book == null
+                    || checkout.getPatrons().get(t.patron.getPatronId()) != t.patron
+                    || checkout.getInventory().get(t.book.getIsbn()) != t.book) {
+                continue;
+            }
+            Encoder out = transactions.nextRecord();
+            out.writeVarint(strings.ref(t.patron.getPatronId()));
+            out.writeVarint(strings.ref(t.book.getIsbn()));
+            out.writeDate(t.checkoutDate);
+            out.writeDate(t.dueDate);
+        }
+
+        Section stringSection = new Section();
+        for (String s : strings.values) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            Encoder out = stringSection.nextRecord();
+            out.writeVarint(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        Section[] sections = new Section[SECTION_COUNT];
+        sections[SECTION_STRINGS] = stringSection;
+        sections[SECTION_BOOKS] = books;
+        sections[SECTION_PATRONS] = patrons;
+        sections[SECTION_TRANSACTIONS] = transactions;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(SECTION_COUNT);
+        long offset = HEADER_BYTES;
+        for (Section section : sections) {
+            long length = section.byteLength();
+            header.putLong(offset).putLong(length);
+            offset += length;
+        }
+        header.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (Section section : sections) {
+                section.writeTo(channel);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a Checkout from a snapshot file.
+     *
+     * @param file The snapshot file
+     * @return A new Checkout with the snapshot's state
+     * @throws IOException If the file cannot be read or is not a valid snapshot
+     */
+    public static Checkout read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a checkout snapshot: " + file);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(buf, file);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt checkout snapshot: " + file, e);
+        }
+    }
+
+    private static Checkout decode(ByteBuffer buf, Path file) throws IOException {
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a checkout snapshot: " + file);
+        }
+        int version = buf.getInt(4);
+        if (version != VERSION && version != VERSION_WITHOUT_COPIES) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        if (buf.getInt(8) != SECTION_COUNT) {
+            throw new IOException("Unexpected section count in " + file);
+        }
+
+        List<String[]> decodedStrings = chunks(buf, SECTION_STRINGS).parallelStream()
+                .map(CheckoutSnapshot::decodeStrings)
+                .collect(Collectors.toList());
+        String[] strings = decodedStrings.stream().flatMap(Arrays::stream).toArray(String[]::new);
+
+        List<Book> books = chunks(buf, SECTION_BOOKS).parallelStream()
+                .flatMap(chunk -> decodeBooks(chunk, strings, version).stream())
+                .collect(Collectors.toList());
+        List<Patron> patrons = chunks(buf, SECTION_PATRONS).parallelStream()
+                .flatMap(chunk -> decodePatrons(chunk, strings, version).stream())
+                .collect(Collectors.toList());
+
+        Checkout checkout = new Checkout();
+        for (Book book : books) {
+            checkout.addBook(book);
+        }
+        for (Patron patron : patrons) {
+            checkout.registerPatron(patron);
+        }
+
+        for (Chunk chunk : chunks(buf, SECTION_TRANSACTIONS)) {
+            Decoder in = new Decoder(chunk.data);
+            for (int i = 0; i < chunk.records; i++) {
+                Patron patron = checkout.getPatrons().get(in.readString(strings));
+                Book book = checkout.getInventory().get(in.readString(strings));
+                LocalDate checkoutDate = in.readDate();
+                LocalDate dueDate = in.readDate();
+                if (patron == null || book == null) {
+                    throw new IOException("Snapshot transaction refers to an unknown patron or book");
+                }
+                checkout.recordTransaction(patron, book, checkoutDate, dueDate);
+            }
+        }
+        return checkout;
+    }
+
+    /**
+     * Splits a section into independently decodable chunks that view the mapped file directly.
+     */
+    private static List<Chunk> chunks(ByteBuffer buf, int section) {
+        int offset = (int) buf.getLong(12 + section * 16);
+        int chunkCount = buf.getInt(offset);
+        List<Chunk> result = new ArrayList<>(chunkCount);
+        int directory = offset + 4;
+        int data = directory + chunkCount * 8;
+        for (int i = 0; i < chunkCount; i++) {
+            int length = buf.getInt(directory + i * 8);
+            int records = buf.getInt(directory + i * 8 + 4);
+            result.add(new Chunk(buf.slice(data, length), records));
+            data += length;
+        }
+        return result;
+    }
+
+    private static String[] decodeStrings(Chunk chunk) {
+        String[] result = new String[chunk.records];
+        Decoder in = new Decoder(chunk.data);
+        for (int i = 0; i < chunk.records; i++) {
+            byte[] bytes = new byte[(int) in.readVarint()];
+            chunk.data.get(in.pos, bytes);
+            in.pos += bytes.length;
+            result[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    private static List<Book> decodeBooks(Chunk chunk, String[] strings, int version) {
+        List<Book> result = new ArrayList<>(chunk.records);
+        Decoder in = new Decoder(chunk.data);
+        for (int i = 0; i < chunk.records; i++) {
+            String isbn = in.readString(strings);
+            String title = in.readString(strings);
+            String author = in.readString(strings);
+            int type = (int) in.readVarint();
+            int totalCopies = (int) in.readSigned();
+            int availableCopies = (int) in.readSigned();
+            Book book = new Book(isbn, title, author, type == 0 ? null : BOOK_TYPES[type - 1], totalCopies);
+            if (version == VERSION_WITHOUT_COPIES) {
+                // Version 1 stored a bare count, which could exceed the copies owned; the setter clamps it
+                book.setAvailableCopies(availableCopies);
+            } else {
+                int capacity = (int) in.readVarint();
+                long[] bitmap = new long[(int) in.readVarint()];
+                for (int w = 0; w < bitmap.length; w++) {
+                    bitmap[w] = in.readLong();
+                }
+                book.restoreCopyBitmap(capacity, bitmap);
+            }
+            result.add(book);
+        }
+        return result;
+    }
+
+    private static List<Patron> decodePatrons(Chunk chunk, String[] strings, int version) {
+        List<Patron> result = new ArrayList<>(chunk.records);
+        Decoder in = new Decoder(chunk.data);
+        for (int i = 0; i < chunk.records; i++) {
+            String id = in.readString(strings);
+            String name = in.readString(strings);
+            String email = in.readString(strings);
+            int type = (int) in.readVarint();
+            Patron patron = new Patron(id, name, email, type == 0 ? null : PATRON_TYPES[type - 1]);
+            patron.setAccountSuspended(in.readVarint() != 0);
+            patron.setOverdueCount((int) in.readSigned());
+            patron.addFine(Double.longBitsToDouble(in.readLong()));
+            patron.setMemberSince(in.readDate());
+            int loans = (int) in.readVarint();
+            for (int j = 0; j < loans; j++) {
+                String isbn = in.readString(strings);
+                LocalDate dueDate = in.readDate();
+                int copyId = version == VERSION_WITHOUT_COPIES ? -1 : (int) in.readSigned();
+                patron.addCheckedOutBook(isbn, dueDate, copyId);
+            }
+            result.add(patron);
+        }
+        return result;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Assigns each distinct string an index; index 0 is reserved for null.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int ref(String s) {
+            if (s == null) {
+                return 0;
+            }
+            Integer existing = index.get(s);
+            if (existing != null) {
+                return existing;
+            }
+            values.add(s);
+            index.put(s, values.size());
+            return values.size();
+        }
+    }
+
+    /**
+     * A section being written, split into chunks of at most CHUNK_RECORDS records.
+     */
+    private static final class Section {
+        private final List<Encoder> chunks = new ArrayList<>();
+        private final List<Integer> counts = new ArrayList<>();
+
+        Encoder nextRecord() {
+            int last = chunks.size() - 1;
+            if (last < 0 || counts.get(last) == CHUNK_RECORDS) {
+                chunks.add(new Encoder());
+                counts.add(0);
+                last++;
+            }
+            counts.set(last, counts.get(last) + 1);
+            return chunks.get(last);
+        }
+
+        long byteLength() {
+            long length = 4 + chunks.size() * 8L;
+            for (Encoder chunk : chunks) {
+                length += chunk.size;
+            }
+            return length;
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer directory = ByteBuffer.allocate(4 + chunks.size() * 8);
+            directory.putInt(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                directory.putInt(chunks.get(i).size).putInt(counts.get(i));
+            }
+            directory.flip();
+            writeFully(channel, directory);
+            for (Encoder chunk : chunks) {
+                writeFully(channel, ByteBuffer.wrap(chunk.bytes, 0, chunk.size));
+            }
+        }
+    }
+
+    /**
+     * Growable byte buffer with LEB128 varint encoding.
+     */
+    private static final class Encoder {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeSigned(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeDate(LocalDate date) {
+            // 0 = null, otherwise zigzag(epochDay) + 1
+            writeVarint(date == null ? 0 : ((date.toEpochDay() << 1) ^ (date.toEpochDay() >> 63)) + 1);
+        }
+
+        void writeBytes(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * One chunk of a section: a view of its bytes and the number of records it holds.
+     */
+    private static final class Chunk {
+        private final ByteBuffer data;
+        private final int records;
+
+        Chunk(ByteBuffer data, int records) {
+            this.data = data;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Sequential reader over a chunk buffer.
+     */
+    private static final class Decoder {
+        private final ByteBuffer buf;
+        private int pos;
+
+        Decoder(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        long readVarint() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed varint at " + pos);
+                }
+                b = buf.get(pos++);
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        long readSigned() {
+            long raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        long readLong() {
+            long value = buf.getLong(pos);
+            pos += 8;
+            return value;
+        }
+
+        LocalDate readDate() {
+            long raw = readVarint();
+            if (raw == 0) {
+                return null;
+            }
+            raw--;
+            return LocalDate.ofEpochDay((raw >>> 1) ^ -(raw & 1));
+        }
+
+        String readString(String[] strings) {
+            int ref = (int) readVarint();
+            return ref == 0 ? null : strings[ref - 1];
+        }
+    }
+}
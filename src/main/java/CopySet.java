@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Availability bitmap for the physical copies of one title. Bit i is set while copy i is on
+ * the shelf. Claiming a copy finds the first set bit and clears it with a CAS; returning a copy
+ * sets its bit again. The number of copies on the shelf is kept alongside the bitmap so it can
+ * be read in O(1).
+ *
+ * claim() and release() are safe to call concurrently. setAvailable() rebuilds the bitmap and
+ * is an administrative correction that should not race with circulation.
+ */
+class CopySet {
+    private volatile AtomicLongArray words;
+    private volatile int capacity;
+    private final AtomicInteger available = new AtomicInteger();
+
+    /**
+     * Creates a bitmap for the given number of copies.
+     *
+     * @param capacity Number of copies
+     * @param onShelf Number of copies (starting from copy 0) that begin on the shelf
+     */
+    CopySet(int capacity, int onShelf) {
+        this.capacity = Math.max(0, capacity);
+        this.words = new AtomicLongArray(wordsFor(this.capacity));
+        setAvailable(onShelf);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int available() {
+        return available.get();
+    }
+
+    boolean isOnShelf(int copyId) {
+        AtomicLongArray w = words;
+        return copyId >= 0 && copyId < capacity && (w.get(copyId >>> 6) & (1L << copyId)) != 0;
+    }
+
+    /**
+     * Takes the lowest-numbered copy on the shelf.
+     *
+     * @return The claimed copy ID, or -1 if none is on the shelf
+     */
+    int claim() {
+        if (available.get() <= 0) {
+            return -1;
+        }
+        AtomicLongArray w = words;
+        for (int i = 0; i < w.length(); i++) {
+            long word = w.get(i);
+            while (word != 0) {
+                long bit = Long.lowestOneBit(word);
+                if (w.compareAndSet(i, word, word & ~bit)) {
+                    available.decrementAndGet();
+                    return (i << 6) + Long.numberOfTrailingZeros(bit);
+                }
+                word = w.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Puts a specific copy back on the shelf.
+     *
+     * @param copyId The copy to return
+     * @return true if the copy was out and is now on the shelf
+     */
+    boolean release(int copyId) {
+        if (copyId < 0 || copyId >= capacity) {
+            return false;
+        }
+        AtomicLongArray w = words;
+        int i = copyId >>> 6;
+        long bit = 1L << copyId;
+        while (true) {
+            long word = w.get(i);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (w.compareAndSet(i, word, word | bit)) {
+                available.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Puts the lowest-numbered copy that is out back on the shelf.
+     *
+     * @return The returned copy ID, or -1 if every copy is already on the shelf
+     */
+    int releaseAny() {
+        while (available.get() < capacity) {
+            AtomicLongArray w = words;
+            int copyId = -1;
+            for (int i = 0; i < w.length() && copyId < 0; i++) {
+                long out = ~w.get(i);
+                if (out != 0) {
+                    int candidate = (i << 6) + Long.numberOfTrailingZeros(out);
+                    copyId = candidate < capacity ? candidate : -1;
+                }
+            }
+            if (copyId < 0) {
+                return -1;
+            }
+            if (release(copyId)) {
+                return copyId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the first {@code count} copies as on the shelf and the rest as out.
+     *
+     * @param count Number of copies on the shelf, from 0 to capacity()
+     */
+    synchronized void setAvailable(int count) {
+        if (count < 0 || count > capacity) {
+            throw new IllegalArgumentException("Copies on shelf must be between 0 and " + capacity + ": " + count);
+        }
+        int onShelf = count;
+        AtomicLongArray w = new AtomicLongArray(wordsFor(capacity));
+        for (int i = 0; i < onShelf >>> 6; i++) {
+            w.set(i, -1L);
+        }
+        if ((onShelf & 63) != 0) {
+            w.set(onShelf >>> 6, (1L << onShelf) - 1);
+        }
+        words = w;
+        available.set(onShelf);
+    }
+
+    /**
+     * Returns a copy of the bitmap words.
+     *
+     * @return Bitmap, bit i set if copy i is on the shelf
+     */
+    long[] toLongArray() {
+        AtomicLongArray w = words;
+        long[] result = new long[w.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = w.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the bitmap with previously saved words.
+     *
+     * @param newCapacity Number of copies
+     * @param bitmap Saved bitmap words
+     */
+    synchronized void restore(int newCapacity, long[] bitmap) {
+        AtomicLongArray w = new AtomicLongArray(wordsFor(newCapacity));
+        int onShelf = 0;
+        for (int i = 0; i < w.length() && i < bitmap.length; i++) {
+            long word = bitmap[i];
+            if (i == w.length() - 1 && (newCapacity & 63) != 0) {
+                word &= (1L << newCapacity) - 1;
+            }
+            w.set(i, word);
+            onShelf += Long.bitCount(word);
+        }
+        capacity = newCapacity;
+        words = w;
+        available.set(onShelf);
+    }
+
+    private static int wordsFor(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+}
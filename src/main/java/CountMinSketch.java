@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size frequency estimator. Each key increments one counter per row; the estimate is the
+ * smallest of those counters, so it never under-counts and over-counts by at most
+ * e/width * (total count) with probability 1 - e^-depth.
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width Counters per row (rounded up to a power of two)
+     * @param depth Number of rows (independent hash functions)
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        int rounded = 1;
+        while (rounded < width) {
+            rounded <<= 1;
+        }
+        this.width = rounded;
+        this.depth = depth;
+        this.counters = new long[this.width * depth];
+    }
+
+    /**
+     * Adds to a key's count.
+     *
+     * @param key The key (ignored if null)
+     * @param count Amount to add
+     */
+    public void add(String key, long count) {
+        if (key == null) {
+            return;
+        }
+        int h = key.hashCode();
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + index(h, row)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Returns the estimated count for a key.
+     *
+     * @param key The key
+     * @return Estimated count (never less than the true count)
+     */
+    public long estimate(String key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + index(h, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the sum of all counts added.
+     *
+     * @return Total count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Subtracts another sketch's counts from this one. Used to drop an expired time bucket
+     * from a running window total.
+     *
+     * @param other A sketch with the same dimensions whose counts were all added to this one
+     */
+    public void subtract(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Sketch dimensions differ");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] -= other.counters[i];
+        }
+        total -= other.total;
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0L);
+        total = 0;
+    }
+
+    private int index(int hash, int row) {
+        long z = hash + (row + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (z ^ (z >>> 33)) & (width - 1);
+    }
+}
@@ -0,0 +1,165 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of loans by due date, so due-soon and overdue loans can be found without scanning
+ * every patron.
+ *
+ * Patrons registered with a Checkout report every due date stored in their checked-out map
+ * here, whether it came from addCheckedOutBook() or a renewal written straight into
+ * getCheckedOutBooks(). Entries are not removed on return or renewal; instead every query
+ * checks each entry against the patron's current checked-out map and drops the ones that no
+ * longer match.
+ */
+public class DueDateIndex {
+    private final ConcurrentSkipListMap<Long, Set<Loan>> byDueDay = new ConcurrentSkipListMap<>();
+
+    /**
+     * A single loan: one patron holding one ISBN with a due date.
+     */
+    public static final class Loan {
+        private final Patron patron;
+        private final String isbn;
+        private final LocalDate dueDate;
+
+        Loan(Patron patron, String isbn, LocalDate dueDate) {
+            this.patron = patron;
+            this.isbn = isbn;
+            this.dueDate = dueDate;
+        }
+
+        public Patron getPatron() {
+            return patron;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+
+        boolean isCurrent() {
+            return dueDate.equals(patron.getCheckedOutBooks().get(isbn));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Loan)) return false;
+            Loan other = (Loan) obj;
+            return patron == other.patron && isbn.equals(other.isbn) && dueDate.equals(other.dueDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(patron), isbn, dueDate);
+        }
+
+        @Override
+        public String toString() {
+            return patron.getPatronId() + ":" + isbn + "@" + dueDate;
+        }
+    }
+
+    /**
+     * Records a loan. Recording the same loan twice has no effect.
+     *
+     * @param patron The borrowing patron
+     * @param isbn The borrowed ISBN
+     * @param dueDate The loan's due date
+     */
+    public void record(Patron patron, String isbn, LocalDate dueDate) {
+        if (patron == null || isbn == null || dueDate == null) {
+            return;
+        }
+        byDueDay.computeIfAbsent(dueDate.toEpochDay(), day -> ConcurrentHashMap.newKeySet())
+                .add(new Loan(patron, isbn, dueDate));
+    }
+
+    /**
+     * Records every loan a patron currently holds.
+     *
+     * @param patron The patron to index
+     */
+    public void indexLoans(Patron patron) {
+        for (Map.Entry<String, LocalDate> loan : patron.getCheckedOutBooks().entrySet()) {
+            record(patron, loan.getKey(), loan.getValue());
+        }
+    }
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param patrons All patrons whose loans should be indexed
+     */
+    public void reindex(Collection<Patron> patrons) {
+        byDueDay.clear();
+        for (Patron patron : patrons) {
+            indexLoans(patron);
+        }
+    }
+
+    /**
+     * Returns current loans due on or after {@code from} and on or before {@code to}.
+     *
+     * @param from First due date to include
+     * @param to Last due date to include
+     * @return Loans in due-date order
+     * @throws IllegalArgumentException If {@code to} is before {@code from}
+     */
+    public List<Loan> dueBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to (" + to + ") is before from (" + from + ")");
+        }
+        return collect(byDueDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true));
+    }
+
+    /**
+     * Returns current loans due before the given date.
+     *
+     * @param today The current date
+     * @return Overdue loans in due-date order
+     */
+    public List<Loan> overdue(LocalDate today) {
+        return collect(byDueDay.headMap(today.toEpochDay(), false));
+    }
+
+    /**
+     * Returns the number of indexed entries, including stale ones not yet pruned.
+     *
+     * @return Entry count
+     */
+    public int size() {
+        int size = 0;
+        for (Set<Loan> loans : byDueDay.values()) {
+            size += loans.size();
+        }
+        return size;
+    }
+
+    private List<Loan> collect(Map<Long, Set<Loan>> days) {
+        List<Loan> result = new ArrayList<>();
+        // Empty day sets are left in place so a concurrent record() never adds to a detached set
+        for (Set<Loan> loans : days.values()) {
+            for (Iterator<Loan> it = loans.iterator(); it.hasNext();) {
+                Loan loan = it.next();
+                if (loan.isCurrent()) {
+                    result.add(loan);
+                } else {
+                    it.remove();
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,30 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reminder sink that appends each digest as a plain-text message to a local file.
+ * Useful as a stand-in for the mail gateway in tests and dry runs.
+ */
+public class FileReminderSink implements ReminderSink {
+    private final Path file;
+
+    public FileReminderSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void deliver(List<ReminderDigest> batch) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (ReminderDigest digest : batch) {
+                out.write(digest.toMessage());
+                out.newLine();
+            }
+        }
+    }
+}
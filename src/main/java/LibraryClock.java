@@ -0,0 +1,111 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Day-granularity time source for circulation (due dates, overdue checks, fines, member dates).
+ *
+ * The system clock resolves the time zone once and caches the current LocalDate until the
+ * next local midnight, so today() is a time check and a field read rather than a zone lookup
+ * and a new LocalDate on every call. Tests and soak runs can install a {@link SimulatedClock}
+ * to move through months of circulation without waiting.
+ */
+public abstract class LibraryClock {
+    private static volatile LibraryClock defaultClock = new SystemClock(ZoneId.systemDefault());
+
+    /**
+     * Returns the current date.
+     *
+     * @return Today's date
+     */
+    public abstract LocalDate today();
+
+    /**
+     * Returns the current date as days since 1970-01-01.
+     *
+     * @return Today's epoch day
+     */
+    public long epochDay() {
+        return today().toEpochDay();
+    }
+
+    /**
+     * Returns a cached system clock for a time zone.
+     *
+     * @param zone The zone whose midnight starts a new day
+     * @return A system-backed clock
+     */
+    public static LibraryClock system(ZoneId zone) {
+        return new SystemClock(zone);
+    }
+
+    /**
+     * Returns the clock used by Checkout and Patron instances created without an explicit clock.
+     *
+     * @return The default clock
+     */
+    public static LibraryClock getDefault() {
+        return defaultClock;
+    }
+
+    /**
+     * Replaces the default clock. Objects already created keep the clock they were given.
+     *
+     * @param clock The new default clock (must not be null)
+     */
+    public static void setDefault(LibraryClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        defaultClock = clock;
+    }
+
+    /**
+     * Restores the system clock as the default.
+     */
+    public static void resetDefault() {
+        defaultClock = new SystemClock(ZoneId.systemDefault());
+    }
+
+    /**
+     * System clock that refreshes its cached date only when local midnight has passed.
+     */
+    private static final class SystemClock extends LibraryClock {
+        private final ZoneId zone;
+        private volatile CachedDay cached;
+
+        SystemClock(ZoneId zone) {
+            this.zone = zone;
+            this.cached = CachedDay.of(LocalDate.now(zone), zone);
+        }
+
+        @Override
+        public LocalDate today() {
+            CachedDay day = cached;
+            if (System.currentTimeMillis() < day.nextMidnightMillis) {
+                return day.date;
+            }
+            day = CachedDay.of(LocalDate.now(zone), zone);
+            cached = day;
+            return day.date;
+        }
+
+        @Override
+        public String toString() {
+            return "LibraryClock[system," + zone + "]";
+        }
+    }
+
+    private static final class CachedDay {
+        private final LocalDate date;
+        private final long nextMidnightMillis;
+
+        private CachedDay(LocalDate date, long nextMidnightMillis) {
+            this.date = date;
+            this.nextMidnightMillis = nextMidnightMillis;
+        }
+
+        static CachedDay of(LocalDate date, ZoneId zone) {
+            return new CachedDay(date, date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
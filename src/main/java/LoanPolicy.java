@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable table of circulation limits keyed by patron type (and optionally book type).
+ * The table is precompiled into arrays indexed by enum ordinal so each lookup is a single
+ * array read. The active policy can be replaced at runtime from a properties file; the swap
+ * is a single reference write, so circulation never waits on a reload. The active policy is
+ * JVM-wide; a branch that needs different limits gives its Checkout a policy of its own with
+ * {@link Checkout#setLoanPolicy(LoanPolicy)}.
+ *
+ * Config file format (any key may be omitted to keep the default):
+ *   FACULTY.maxCheckout=20
+ *   FACULTY.loanPeriodDays=60
+ *   FACULTY.TEXTBOOK.loanPeriodDays=14
+ */
+public final class LoanPolicy {
+    /** Remaining-capacity window that triggers the 1.1 "near limit" warning. */
+    public static final int WARNING_MARGIN = 2;
+
+    private static final int DEFAULT_MAX_CHECKOUT = 5;
+    private static final int DEFAULT_LOAN_PERIOD_DAYS = 21;
+
+    private static final Patron.PatronType[] PATRON_TYPES = Patron.PatronType.values();
+    private static final Book.BookType[] BOOK_TYPES = Book.BookType.values();
+
+    private static final LoanPolicy DEFAULTS = defaultPolicy();
+
+    private static final AtomicReference<LoanPolicy> ACTIVE = new AtomicReference<>(DEFAULTS);
+
+    private final int[] maxCheckout;
+    private final int[] warningThreshold;
+    private final int[] loanPeriodDays;
+    // Flattened [patronType][bookType] table; 0 means "no override, use loanPeriodDays"
+    private final int[] loanPeriodOverrides;
+
+    private LoanPolicy(int[] maxCheckout, int[] loanPeriodDays, int[] loanPeriodOverrides) {
+        this.maxCheckout = maxCheckout;
+        this.loanPeriodDays = loanPeriodDays;
+        this.warningThreshold = new int[maxCheckout.length];
+        for (int i = 0; i < maxCheckout.length; i++) {
+            warningThreshold[i] = maxCheckout[i] - WARNING_MARGIN;
+        }
+        // Resolve overrides once so the per-book lookup never has to branch on them
+        this.loanPeriodOverrides = new int[loanPeriodOverrides.length];
+        for (int p = 0; p < PATRON_TYPES.length; p++) {
+            for (int b = 0; b < BOOK_TYPES.length; b++) {
+                int slot = p * BOOK_TYPES.length + b;
+                int override = loanPeriodOverrides[slot];
+                this.loanPeriodOverrides[slot] = override > 0 ? override : loanPeriodDays[p];
+            }
+        }
+    }
+
+    private static LoanPolicy defaultPolicy() {
+        Map<Patron.PatronType, Integer> max = new EnumMap<>(Patron.PatronType.class);
+        max.put(Patron.PatronType.STUDENT, 10);
+        max.put(Patron.PatronType.FACULTY, 20);
+        max.put(Patron.PatronType.STAFF, 15);
+        max.put(Patron.PatronType.PUBLIC, 5);
+        max.put(Patron.PatronType.CHILD, 3);
+        Map<Patron.PatronType, Integer> days = new EnumMap<>(Patron.PatronType.class);
+        days.put(Patron.PatronType.STUDENT, 30);
+        days.put(Patron.PatronType.FACULTY, 60);
+        days.put(Patron.PatronType.STAFF, 45);
+        days.put(Patron.PatronType.PUBLIC, 21);
+        days.put(Patron.PatronType.CHILD, 14);
+        return new LoanPolicy(byOrdinal(max), byOrdinal(days), new int[PATRON_TYPES.length * BOOK_TYPES.length]);
+    }
+
+    private static int[] byOrdinal(Map<Patron.PatronType, Integer> values) {
+        int[] table = new int[PATRON_TYPES.length];
+        for (Patron.PatronType type : PATRON_TYPES) {
+            Integer value = values.get(type);
+            if (value == null) {
+                throw new IllegalStateException("No default loan policy for " + type);
+            }
+            table[type.ordinal()] = value;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the built-in policy matching the library's standard limits.
+     *
+     * @return The default policy
+     */
+    public static LoanPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns the policy currently in effect.
+     *
+     * @return The active policy
+     */
+    public static LoanPolicy active() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Atomically replaces the active policy.
+     *
+     * @param policy The new policy (must not be null)
+     * @return The policy that was replaced
+     */
+    public static LoanPolicy activate(LoanPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        return ACTIVE.getAndSet(policy);
+    }
+
+    /**
+     * Parses a config file and activates it. The current policy stays in effect if the file
+     * cannot be read or contains an invalid entry.
+     *
+     * @param file The properties file to load
+     * @return The newly active policy
+     * @throws IOException If the file cannot be read
+     */
+    public static LoanPolicy reload(Path file) throws IOException {
+        LoanPolicy policy = load(file);
+        activate(policy);
+        return policy;
+    }
+
+    /**
+     * Parses a config file into a policy without activating it.
+     * Entries that are not present keep their default values.
+     *
+     * @param file The properties file to load
+     * @return The parsed policy
+     * @throws IOException If the file cannot be read
+     */
+    public static LoanPolicy load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        return fromProperties(props);
+    }
+
+    /**
+     * Builds a policy from already-loaded properties.
+     *
+     * @param props Policy entries (see class comment for the key format)
+     * @return The parsed policy
+     */
+    public static LoanPolicy fromProperties(Properties props) {
+        int[] max = DEFAULTS.maxCheckout.clone();
+        int[] days = DEFAULTS.loanPeriodDays.clone();
+        int[] overrides = new int[PATRON_TYPES.length * BOOK_TYPES.length];
+
+        for (String key : props.stringPropertyNames()) {
+            String[] parts = key.trim().split("\\.");
+            int value = parsePositive(key, props.getProperty(key));
+            Patron.PatronType patronType = parseEnum(Patron.PatronType.class, parts[0], key);
+
+            if (parts.length == 2 && parts[1].equals("maxCheckout")) {
+                max[patronType.ordinal()] = value;
+            } else if (parts.length == 2 && parts[1].equals("loanPeriodDays")) {
+                days[patronType.ordinal()] = value;
+            } else if (parts.length == 3 && parts[2].equals("loanPeriodDays")) {
+                Book.BookType bookType = parseEnum(Book.BookType.class, parts[1], key);
+                overrides[patronType.ordinal() * BOOK_TYPES.length + bookType.ordinal()] = value;
+            } else {
+                throw new IllegalArgumentException("Unknown loan policy key: " + key);
+            }
+        }
+        return new LoanPolicy(max, days, overrides);
+    }
+
+    /**
+     * Returns the maximum number of books a patron type may hold at once.
+     *
+     * @param type The patron type (null falls back to the PUBLIC-style default)
+     * @return Maximum checkout limit
+     */
+    public int maxCheckoutLimit(Patron.PatronType type) {
+        return type == null ? DEFAULT_MAX_CHECKOUT : maxCheckout[type.ordinal()];
+    }
+
+    /**
+     * Returns the checkout count at which the near-limit warning (1.1) starts.
+     *
+     * @param type The patron type
+     * @return Checkout count that triggers the warning
+     */
+    public int warningThreshold(Patron.PatronType type) {
+        return type == null ? DEFAULT_MAX_CHECKOUT - WARNING_MARGIN : warningThreshold[type.ordinal()];
+    }
+
+    /**
+     * Returns the standard loan period for a patron type.
+     *
+     * @param type The patron type
+     * @return Loan period in days
+     */
+    public int loanPeriodDays(Patron.PatronType type) {
+        return type == null ? DEFAULT_LOAN_PERIOD_DAYS : loanPeriodDays[type.ordinal()];
+    }
+
+    /**
+     * Returns the loan period for a patron type borrowing a specific book type.
+     *
+     * @param type The patron type
+     * @param bookType The book type (null uses the patron type's standard period)
+     * @return Loan period in days
+     */
+    public int loanPeriodDays(Patron.PatronType type, Book.BookType bookType) {
+        if (type == null) {
+            return DEFAULT_LOAN_PERIOD_DAYS;
+        }
+        if (bookType == null) {
+            return loanPeriodDays[type.ordinal()];
+        }
+        return loanPeriodOverrides[type.ordinal() * BOOK_TYPES.length + bookType.ordinal()];
+    }
+
+    private static int parsePositive(String key, String raw) {
+        try {
+            int value = Integer.parseInt(raw.trim());
+            if (value <= 0) {
+                throw new IllegalArgumentException("Loan policy value must be positive: " + key + "=" + raw);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Loan policy value is not a number: " + key + "=" + raw, e);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String key) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " in loan policy key: " + key, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LoanPolicy[");
+        for (Patron.PatronType type : PATRON_TYPES) {
+            if (type.ordinal() > 0) {
+                sb.append(',');
+            }
+            sb.append(type).append('=').append(maxCheckoutLimit(type))
+                    .append('/').append(loanPeriodDays(type)).append('d');
+        }
+        return sb.append(']').toString();
+    }
+}
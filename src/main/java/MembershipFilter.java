@@ -0,0 +1,161 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocked Bloom filter used to reject unknown ISBNs and patron IDs before a map lookup.
+ * Every key maps to one 512-bit block (a single cache line), and all of its probe bits live
+ * inside that block, so a query touches one cache line and allocates nothing.
+ *
+ * A negative answer is always correct; a positive answer means "probably present" and the
+ * caller must still consult the real map. Keys cannot be removed.
+ */
+public class MembershipFilter {
+    private static final int WORDS_PER_BLOCK = 8;       // 8 x 64 bits = 512-bit block
+    private static final int BITS_PER_BLOCK = 512;
+    private static final int BITS_PER_KEY = 10;
+    private static final int PROBES = 6;
+    private static final int PROBE_SHIFT = 9;           // log2(BITS_PER_BLOCK)
+
+    private final long[] words;
+    private final int blockMask;
+    private int size;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Creates a filter sized for the given number of keys at roughly 1% false positives.
+     *
+     * @param expectedKeys Expected number of distinct keys
+     */
+    public MembershipFilter(int expectedKeys) {
+        long bits = Math.max(1L, expectedKeys) * BITS_PER_KEY;
+        int blocks = Integer.highestOneBit((int) Math.min(1 << 26, (bits + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK));
+        if (blocks * (long) BITS_PER_BLOCK < bits) {
+            blocks <<= 1;
+        }
+        this.words = new long[blocks * WORDS_PER_BLOCK];
+        this.blockMask = blocks - 1;
+    }
+
+    /**
+     * Adds a key to the filter. Null keys are ignored.
+     *
+     * @param key The key to add
+     */
+    public void add(String key) {
+        if (key == null) {
+            return;
+        }
+        long h = mix(key.hashCode());
+        int base = ((int) h & blockMask) * WORDS_PER_BLOCK;
+        long probes = mix(h);
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (int) (probes >>> (PROBE_SHIFT * i)) & (BITS_PER_BLOCK - 1);
+            words[base + (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /**
+     * Checks whether a key may be present.
+     *
+     * @param key The key to look up
+     * @return false if the key was definitely never added, true if it may have been
+     */
+    public boolean mightContain(String key) {
+        queries.increment();
+        if (key == null) {
+            rejected.increment();
+            return false;
+        }
+        long h = mix(key.hashCode());
+        int base = ((int) h & blockMask) * WORDS_PER_BLOCK;
+        long probes = mix(h);
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (int) (probes >>> (PROBE_SHIFT * i)) & (BITS_PER_BLOCK - 1);
+            if ((words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                rejected.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that a key passed the filter but was not found in the backing map.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Adds the query, rejection and false positive counts of the filter this one replaces, so
+     * the statistics cover every lookup rather than only those since the last rebuild.
+     *
+     * @param previous The filter being replaced
+     */
+    public void carryCountsFrom(MembershipFilter previous) {
+        queries.add(previous.getQueryCount());
+        rejected.add(previous.getRejectedCount());
+        falsePositives.add(previous.getFalsePositiveCount());
+    }
+
+    /**
+     * Returns the number of keys added.
+     *
+     * @return Number of add() calls with a non-null key
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Returns the observed false positive rate: false positives divided by the number of
+     * queries for keys that were not present (rejections plus false positives).
+     *
+     * @return Observed false positive rate (0.0 if no misses have been seen)
+     */
+    public double getObservedFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long misses = rejected.sum() + fp;
+        return misses == 0 ? 0.0 : (double) fp / misses;
+    }
+
+    /**
+     * Returns the theoretical false positive rate for the current number of keys,
+     * using the standard (1 - e^(-kn/m))^k approximation.
+     *
+     * @return Expected false positive rate
+     */
+    public double getExpectedFalsePositiveRate() {
+        double m = words.length * 64.0;
+        return Math.pow(1.0 - Math.exp(-PROBES * size / m), PROBES);
+    }
+
+    private static long mix(long z) {
+        // SplitMix64 step: low bits pick the block, a second round feeds the in-block probes
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipFilter[keys=" + size + ",queries=" + getQueryCount() + ",rejected=" + getRejectedCount()
+                + ",falsePositives=" + getFalsePositiveCount() + "]";
+    }
+}
@@ -1,10 +1,17 @@
 import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represents a library patron (user).
  * Tracks checked out books, fines, and account status.
+ * Changes to the checked-out books hold this patron's monitor, so a caller that needs to read
+ * and then update a patron's loans as one step synchronizes on the patron.
  */
 public class Patron {
     private String patronId;
@@ -13,9 +20,12 @@ public class Patron {
     private PatronType type;
     private boolean suspended;
     private double fines;
-    private Map<String, LocalDate> bookMap;
+    private Map<String, LocalDate> bookMap; // write-through: every due date set here reaches loanIndex
+    private Map<String, Integer> copyMap; // ISBN -> copy ID held, only for loans of a known copy
     private int overdue;
     private LocalDate memberDate;
+    private DueDateIndex loanIndex;
+    private AtomicReference<LoanPolicy> branchPolicy; // policy of the Checkout this patron is registered with
 
     public enum PatronType {
         STUDENT,
@@ -40,9 +50,9 @@ public class Patron {
         this.type = type;
         this.suspended = false;
         this.fines = 0.0;
-        this.bookMap = new HashMap<>();
+        this.bookMap = new Loans();
         this.overdue = 0;
-        this.memberDate = LocalDate.now();
+        this.memberDate = LibraryClock.getDefault().today();
     }
 
     // Getters
@@ -88,25 +98,23 @@ public class Patron {
 
     /**
      * Returns the maximum number of books this patron can check out
-     * based on their patron type.
+     * based on their patron type, as configured by the loan policy of the Checkout they are
+     * registered with, or by the active {@link LoanPolicy} if it has none.
      *
      * @return Maximum checkout limit
      */
     public int getMaxCheckoutLimit() {
-        switch (type) {
-            case FACULTY:
-                return 20;
-            case STAFF:
-                return 15;
-            case STUDENT:
-                return 10;
-            case PUBLIC:
-                return 5;
-            case CHILD:
-                return 3;
-            default:
-                return 5;
-        }
+        return policy().maxCheckoutLimit(type);
+    }
+
+    /**
+     * Returns the checkout count at which this patron is within
+     * {@link LoanPolicy#WARNING_MARGIN} of their limit.
+     *
+     * @return Checkout count that triggers the near-limit warning
+     */
+    public int getCheckoutWarningThreshold() {
+        return policy().warningThreshold(type);
     }
 
     /**
@@ -115,12 +123,23 @@ public class Patron {
      * @return Loan period in days
      */
     public int getLoanPeriodDays() {
-        if(type==PatronType.FACULTY)return 60;
-        else if(type==PatronType.STAFF)return 45;
-        else if(type==PatronType.STUDENT)return 30;
-        else if(type==PatronType.PUBLIC)return 21;
-        else if(type==PatronType.CHILD)return 14;
-        else return 21;
+        return policy().loanPeriodDays(type);
+    }
+
+    /**
+     * Returns the loan period in days for this patron borrowing a given type of book.
+     * Falls back to {@link #getLoanPeriodDays()} when no override is configured.
+     *
+     * @param bookType The type of book being borrowed
+     * @return Loan period in days
+     */
+    public int getLoanPeriodDays(Book.BookType bookType) {
+        return policy().loanPeriodDays(type, bookType);
+    }
+
+    private LoanPolicy policy() {
+        LoanPolicy policy = branchPolicy == null ? null : branchPolicy.get();
+        return policy == null ? LoanPolicy.active() : policy;
     }
 
     public void resetFines() {
@@ -140,6 +159,18 @@ public class Patron {
         this.overdue = count;
     }
 
+    void setMemberSince(LocalDate memberDate) {
+        this.memberDate = memberDate;
+    }
+
+    void setLoanIndex(DueDateIndex loanIndex) {
+        this.loanIndex = loanIndex;
+    }
+
+    void setBranchPolicy(AtomicReference<LoanPolicy> branchPolicy) {
+        this.branchPolicy = branchPolicy;
+    }
+
     /**
      * Adds a fine to the patron's balance.
      *
@@ -169,17 +200,56 @@ public class Patron {
      * @param isbn Book ISBN
      * @param dueDate Due date for the book
      */
-    public void addCheckedOutBook(String isbn, LocalDate dueDate) {
+    public synchronized void addCheckedOutBook(String isbn, LocalDate dueDate) {
+        recordLoan(StringPool.CATALOG.intern(isbn), dueDate);
+    }
+
+    /**
+     * Adds a book to the checked out books list, recording which physical copy was lent.
+     *
+     * @param isbn Book ISBN
+     * @param dueDate Due date for the book
+     * @param copyId Copy ID returned by Book.checkoutCopy()
+     */
+    public synchronized void addCheckedOutBook(String isbn, LocalDate dueDate, int copyId) {
+        String key = StringPool.CATALOG.intern(isbn);
+        recordLoan(key, dueDate);
+        if (copyId >= 0) {
+            if (copyMap == null) {
+                copyMap = new HashMap<>();
+            }
+            copyMap.put(key, copyId);
+        }
+    }
+
+    private void recordLoan(String isbn, LocalDate dueDate) {
         bookMap.put(isbn, dueDate);
     }
 
+    /**
+     * Returns the copy ID this patron holds for a book.
+     *
+     * @param isbn Book ISBN
+     * @return The copy ID, or -1 if the book is not checked out or the copy is unknown
+     */
+    public int getCheckedOutCopy(String isbn) {
+        if (copyMap == null || !bookMap.containsKey(isbn)) {
+            return -1;
+        }
+        Integer copyId = copyMap.get(isbn);
+        return copyId == null ? -1 : copyId;
+    }
+
     /**
      * Removes a book from the checked out books list.
      *
      * @param isbn Book ISBN to remove
      */
-    public void removeCheckedOutBook(String isbn) {
+    public synchronized void removeCheckedOutBook(String isbn) {
         bookMap.remove(isbn);
+        if (copyMap != null) {
+            copyMap.remove(isbn);
+        }
     }
 
     /**
@@ -213,9 +283,150 @@ public class Patron {
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return patronId == null ? 0 : patronId.hashCode();
+    }
 
     @Override
     public String toString() {
         return patronId+"-"+name+"("+type+")"+"[Books:"+bookMap.size()+"/"+getMaxCheckoutLimit()+",Fines:$"+ fines +"]";
     }
+
+    /**
+     * Checked-out map that reports every due date it stores to the due-date index, so a loan
+     * renewed by writing straight into getCheckedOutBooks() keeps getting reminders.
+     */
+    private final class Loans extends AbstractMap<String, LocalDate> {
+        private final Map<String, LocalDate> map = new HashMap<>();
+        private Set<Map.Entry<String, LocalDate>> entrySet;
+
+        @Override
+        public LocalDate put(String isbn, LocalDate dueDate) {
+            synchronized (Patron.this) {
+                LocalDate previous = map.put(isbn, dueDate);
+                indexed(isbn, dueDate);
+                return previous;
+            }
+        }
+
+        @Override
+        public LocalDate get(Object isbn) {
+            return map.get(isbn);
+        }
+
+        @Override
+        public boolean containsKey(Object isbn) {
+            return map.containsKey(isbn);
+        }
+
+        @Override
+        public LocalDate remove(Object isbn) {
+            synchronized (Patron.this) {
+                return map.remove(isbn);
+            }
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            synchronized (Patron.this) {
+                map.clear();
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<String, LocalDate>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, LocalDate>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, LocalDate>> iterator() {
+                        Iterator<Map.Entry<String, LocalDate>> it = map.entrySet().iterator();
+                        return new Iterator<Map.Entry<String, LocalDate>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Map.Entry<String, LocalDate> next() {
+                                return new LoanEntry(it.next());
+                            }
+
+                            @Override
+                            public void remove() {
+                                it.remove();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return map.size();
+                    }
+
+                    @Override
+                    public void clear() {
+                        map.clear();
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private void indexed(String isbn, LocalDate dueDate) {
+            if (loanIndex != null) {
+                loanIndex.record(Patron.this, isbn, dueDate);
+            }
+        }
+
+        /**
+         * Entry whose setValue() also goes to the index.
+         */
+        private final class LoanEntry implements Map.Entry<String, LocalDate> {
+            private final Map.Entry<String, LocalDate> entry;
+
+            LoanEntry(Map.Entry<String, LocalDate> entry) {
+                this.entry = entry;
+            }
+
+            @Override
+            public String getKey() {
+                return entry.getKey();
+            }
+
+            @Override
+            public LocalDate getValue() {
+                return entry.getValue();
+            }
+
+            @Override
+            public LocalDate setValue(LocalDate dueDate) {
+                synchronized (Patron.this) {
+                    LocalDate previous = entry.setValue(dueDate);
+                    indexed(entry.getKey(), dueDate);
+                    return previous;
+                }
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return entry.equals(obj);
+            }
+
+            @Override
+            public int hashCode() {
+                return entry.hashCode();
+            }
+
+            @Override
+            public String toString() {
+                return entry.toString();
+            }
+        }
+    }
 }
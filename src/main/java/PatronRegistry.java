@@ -0,0 +1,311 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Patron table keyed by the documented {@code P-XXXXX} ID format.
+ *
+ * An ID of exactly "P-" followed by five digits is parsed into its number, which indexes
+ * straight into an array, so get() hashes nothing and allocates nothing. IDs in any other
+ * format (including null) are kept in an ordinary HashMap, so every key a HashMap would
+ * accept still works. Iteration visits the array in ascending ID order and then the
+ * non-conforming IDs in no particular order.
+ *
+ * Like HashMap, this class is not thread-safe, and its iterators are fail-fast.
+ */
+public class PatronRegistry extends AbstractMap<String, Patron> {
+    /** Number of distinct P-XXXXX IDs. */
+    public static final int ID_SPACE = 100_000;
+
+    private static final int ID_DIGITS = 5;
+    private static final int ID_LENGTH = 2 + ID_DIGITS;
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys = new String[0];   // non-null marks an occupied slot
+    private Patron[] values = new Patron[0];
+    private int denseSize;
+    private final HashMap<String, Patron> other = new HashMap<>();
+    private int modCount;
+    private long keysAdded;
+    private Set<Map.Entry<String, Patron>> entrySet;
+
+    /**
+     * Parses a patron ID in the P-XXXXX format.
+     *
+     * @param patronId The patron ID
+     * @return The numeric part (0 to 99999), or -1 if the ID does not follow the format
+     */
+    public static int parseId(Object patronId) {
+        if (!(patronId instanceof String)) {
+            return -1;
+        }
+        String id = (String) patronId;
+        if (id.length() != ID_LENGTH || id.charAt(0) != 'P' || id.charAt(1) != '-') {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 2; i < ID_LENGTH; i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    /**
+     * Looks up a patron by the numeric part of its P-XXXXX ID.
+     *
+     * @param number The ID number (0 to 99999)
+     * @return The patron, or null if none is registered under that number
+     */
+    public Patron get(int number) {
+        return number >= 0 && number < values.length ? values[number] : null;
+    }
+
+    @Override
+    public Patron get(Object key) {
+        int number = parseId(key);
+        if (number >= 0) {
+            return get(number);
+        }
+        return other.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int number = parseId(key);
+        if (number >= 0) {
+            return number < keys.length && keys[number] != null;
+        }
+        return other.containsKey(key);
+    }
+
+    @Override
+    public Patron put(String key, Patron patron) {
+        int number = parseId(key);
+        if (number < 0) {
+            int before = other.size();
+            Patron previous = other.put(key, patron);
+            if (other.size() != before) {
+                keysAdded++;
+            }
+            return previous;
+        }
+        if (number >= keys.length) {
+            grow(number);
+        }
+        Patron previous = values[number];
+        if (keys[number] == null) {
+            keys[number] = key;
+            denseSize++;
+            modCount++;
+            keysAdded++;
+        }
+        values[number] = patron;
+        return previous;
+    }
+
+    @Override
+    public Patron remove(Object key) {
+        int number = parseId(key);
+        if (number < 0) {
+            return other.remove(key);
+        }
+        if (number >= keys.length || keys[number] == null) {
+            return null;
+        }
+        Patron previous = values[number];
+        removeSlot(number);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return denseSize + other.size();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        denseSize = 0;
+        other.clear();
+        modCount++;
+    }
+
+    /**
+     * Returns how many times a key that was not present has been added. Unlike size(), this
+     * never goes down, so an add followed by a remove is still visible.
+     *
+     * @return Number of key insertions since construction
+     */
+    long getKeysAdded() {
+        return keysAdded;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Patron>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Patron>>() {
+                @Override
+                public Iterator<Map.Entry<String, Patron>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return PatronRegistry.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    PatronRegistry.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private void grow(int number) {
+        int capacity = Math.max(MIN_CAPACITY, keys.length);
+        while (capacity <= number) {
+            capacity <<= 1;
+        }
+        capacity = Math.min(capacity, ID_SPACE);
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    private void removeSlot(int number) {
+        keys[number] = null;
+        values[number] = null;
+        denseSize--;
+        modCount++;
+    }
+
+    /**
+     * Walks the array slots in ID order, then the fallback map.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Patron>> {
+        private int next = -1;
+        private int last = -1;
+        private Iterator<Map.Entry<String, Patron>> fallback;
+        private boolean lastFromFallback;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            next++;
+            while (next < keys.length && keys[next] == null) {
+                next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < keys.length) {
+                return true;
+            }
+            if (fallback == null) {
+                fallback = other.entrySet().iterator();
+            }
+            return fallback.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Patron> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next < keys.length) {
+                last = next;
+                lastFromFallback = false;
+                advance();
+                return new Slot(last);
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = -1;
+            lastFromFallback = true;
+            return fallback.next();
+        }
+
+        @Override
+        public void remove() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastFromFallback) {
+                fallback.remove();
+                lastFromFallback = false;
+                return;
+            }
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeSlot(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry view of one array slot; setValue() writes through.
+     */
+    private final class Slot implements Map.Entry<String, Patron> {
+        private final int number;
+        private final String key;
+
+        Slot(int number) {
+            this.number = number;
+            this.key = keys[number];
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Patron getValue() {
+            return values[number];
+        }
+
+        @Override
+        public Patron setValue(Patron patron) {
+            Patron previous = values[number];
+            values[number] = patron;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Streaming popularity analytics over a sliding time window.
+ *
+ * Every checkout attempt is counted per ISBN, and attempts that come back unavailable (2.0)
+ * are counted separately, so copy purchasing can target titles with unmet demand. Counts
+ * live in one Count-Min sketch per time bucket plus a running sketch for the whole window;
+ * when the window slides, the expired bucket is subtracted from the running sketch and
+ * cleared. A bounded candidate set ordered by count tracks the top ISBNs. Memory is fixed by
+ * the constructor arguments, and each event costs a constant number of counter updates plus
+ * O(log topK) for the candidate set, regardless of how many titles exist.
+ *
+ * Can be attached to a {@link CheckoutPipeline} as a listener or fed directly.
+ */
+public class PopularityTracker implements CheckoutPipeline.CommandListener {
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int SKETCH_DEPTH = 4;
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int topK;
+    private final long[] bucketIds;
+    private final CountMinSketch[] requested;
+    private final CountMinSketch[] unavailable;
+    private final CountMinSketch requestedWindow;
+    private final CountMinSketch unavailableWindow;
+    private final long[][] circulation;
+    private final TopK topRequested;
+    private final TopK topUnavailable;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param clock Time source for bucketing events
+     * @param window Length of the sliding window
+     * @param buckets Number of buckets the window is divided into
+     * @param topK Number of top ISBNs to track per list
+     */
+    public PopularityTracker(Clock clock, Duration window, int buckets, int topK) {
+        if (buckets <= 0 || topK <= 0 || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("window must span at least one millisecond per bucket");
+        }
+        this.clock = clock;
+        this.bucketMillis = window.toMillis() / buckets;
+        this.topK = topK;
+        this.bucketIds = new long[buckets];
+        this.requested = new CountMinSketch[buckets];
+        this.unavailable = new CountMinSketch[buckets];
+        this.circulation = new long[buckets][Book.BookType.values().length];
+        for (int i = 0; i < buckets; i++) {
+            requested[i] = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+            unavailable[i] = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+            bucketIds[i] = -1;
+        }
+        this.requestedWindow = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        this.unavailableWindow = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        this.topRequested = new TopK(requestedWindow);
+        this.topUnavailable = new TopK(unavailableWindow);
+    }
+
+    /**
+     * Records a checkout attempt and its outcome.
+     *
+     * @param book The book requested (ignored if null)
+     * @param resultCode The checkoutBook() return code
+     */
+    public synchronized void recordAttempt(Book book, double resultCode) {
+        if (book == null || book.getIsbn() == null || resultCode < 0) {
+            // Negative codes (e.g. renewing a book the patron does not hold) are not requests
+            return;
+        }
+        int slot = currentSlot();
+        String isbn = book.getIsbn();
+
+        requested[slot].add(isbn, 1);
+        requestedWindow.add(isbn, 1);
+        topRequested.offer(isbn);
+
+        if (resultCode == 2.0) {
+            unavailable[slot].add(isbn, 1);
+            unavailableWindow.add(isbn, 1);
+            topUnavailable.offer(isbn);
+        } else if (isSuccess(resultCode) && book.getType() != null) {
+            circulation[slot][book.getType().ordinal()]++;
+        }
+    }
+
+    /**
+     * Returns whether a checkoutBook() code means the book went out (or was renewed).
+     */
+    private static boolean isSuccess(double resultCode) {
+        return resultCode == 0.0 || resultCode == 0.1 || resultCode == 1.0 || resultCode == 1.1;
+    }
+
+    @Override
+    public void onCommand(CheckoutPipeline.Command command, long sequence, boolean endOfBatch) {
+        CheckoutPipeline.CommandType type = command.getType();
+        if ((type == CheckoutPipeline.CommandType.CHECKOUT || type == CheckoutPipeline.CommandType.RENEW)
+                && !command.isFailed()) {
+            recordAttempt(command.getBook(), command.getResult());
+        }
+    }
+
+    /**
+     * Returns the most requested ISBNs in the current window, most requested first.
+     *
+     * @param n Maximum number of entries
+     * @return ISBN and estimated request count pairs
+     */
+    public synchronized List<Map.Entry<String, Long>> getTopRequested(int n) {
+        currentSlot();
+        return topRequested.top(n);
+    }
+
+    /**
+     * Returns the ISBNs that most often came back unavailable in the current window.
+     *
+     * @param n Maximum number of entries
+     * @return ISBN and estimated unavailable count pairs
+     */
+    public synchronized List<Map.Entry<String, Long>> getTopUnavailable(int n) {
+        currentSlot();
+        return topUnavailable.top(n);
+    }
+
+    /**
+     * Returns the estimated number of requests for an ISBN in the current window.
+     *
+     * @param isbn The ISBN
+     * @return Estimated request count
+     */
+    public synchronized long getRequestCount(String isbn) {
+        currentSlot();
+        return requestedWindow.estimate(isbn);
+    }
+
+    /**
+     * Returns the estimated number of unavailable results for an ISBN in the current window.
+     *
+     * @param isbn The ISBN
+     * @return Estimated unavailable count
+     */
+    public synchronized long getUnavailableCount(String isbn) {
+        currentSlot();
+        return unavailableWindow.estimate(isbn);
+    }
+
+    /**
+     * Returns the number of successful checkouts and renewals of a book type in the current window.
+     *
+     * @param type The book type
+     * @return Circulation count (0 if type is null)
+     */
+    public synchronized long getCirculation(Book.BookType type) {
+        if (type == null) {
+            return 0;
+        }
+        currentSlot();
+        long sum = 0;
+        for (long[] bucket : circulation) {
+            sum += bucket[type.ordinal()];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the bucket for the current time, clearing any buckets that have slid out of the window.
+     */
+    private int currentSlot() {
+        long bucketId = clock.millis() / bucketMillis;
+        int slot = (int) (bucketId % bucketIds.length);
+        if (bucketIds[slot] != bucketId) {
+            for (int i = 0; i < bucketIds.length; i++) {
+                if (bucketIds[i] != -1 && bucketId - bucketIds[i] >= bucketIds.length) {
+                    clearSlot(i);
+                }
+            }
+            clearSlot(slot);
+            bucketIds[slot] = bucketId;
+            // Expired buckets lower the window counts; stale candidate counts would keep new titles out
+            topRequested.rescore();
+            topUnavailable.rescore();
+        }
+        return slot;
+    }
+
+    private void clearSlot(int slot) {
+        requestedWindow.subtract(requested[slot]);
+        unavailableWindow.subtract(unavailable[slot]);
+        requested[slot].clear();
+        unavailable[slot].clear();
+        Arrays.fill(circulation[slot], 0L);
+        bucketIds[slot] = -1;
+    }
+
+    /**
+     * Bounded set of heavy-hitter candidates scored against a window sketch. Candidates are
+     * kept ordered by their last seen count, so updating one or evicting the smallest costs
+     * O(log topK).
+     */
+    private final class TopK {
+        private final CountMinSketch window;
+        private final Map<String, Candidate> candidates = new HashMap<>();
+        private final TreeSet<Candidate> byCount = new TreeSet<>(
+                Comparator.comparingLong((Candidate c) -> c.count).thenComparing(c -> c.isbn));
+
+        TopK(CountMinSketch window) {
+            this.window = window;
+        }
+
+        void offer(String isbn) {
+            long count = window.estimate(isbn);
+            Candidate candidate = candidates.get(isbn);
+            if (candidate != null) {
+                byCount.remove(candidate);
+                candidate.count = count;
+                byCount.add(candidate);
+            } else if (candidates.size() < topK) {
+                add(isbn, count);
+            } else if (count > byCount.first().count) {
+                Candidate evicted = byCount.pollFirst();
+                candidates.remove(evicted.isbn);
+                add(isbn, count);
+            }
+        }
+
+        private void add(String isbn, long count) {
+            Candidate candidate = new Candidate(isbn, count);
+            candidates.put(isbn, candidate);
+            byCount.add(candidate);
+        }
+
+        /**
+         * Re-reads every candidate's count from the window sketch and drops candidates whose
+         * demand slid out of the window. Called whenever buckets expire.
+         */
+        void rescore() {
+            byCount.clear();
+            for (Iterator<Candidate> it = candidates.values().iterator(); it.hasNext(); ) {
+                Candidate candidate = it.next();
+                candidate.count = window.estimate(candidate.isbn);
+                if (candidate.count == 0) {
+                    it.remove();
+                } else {
+                    byCount.add(candidate);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Long>> top(int n) {
+            List<Map.Entry<String, Long>> result = new ArrayList<>(byCount.size());
+            for (Candidate candidate : byCount) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(candidate.isbn, candidate.count));
+            }
+            result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            return result.size() > n ? new ArrayList<>(result.subList(0, Math.max(0, n))) : result;
+        }
+    }
+
+    private static final class Candidate {
+        private final String isbn;
+        private long count;
+
+        Candidate(String isbn, long count) {
+            this.isbn = isbn;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All reminders for one patron, combined into a single message.
+ */
+public class ReminderDigest {
+    private final Patron patron;
+    private final List<DueDateIndex.Loan> overdue = new ArrayList<>();
+    private final List<DueDateIndex.Loan> dueSoon = new ArrayList<>();
+    private final Map<String, Book> inventory;
+
+    ReminderDigest(Patron patron, Map<String, Book> inventory) {
+        this.patron = patron;
+        this.inventory = inventory;
+    }
+
+    void addOverdue(DueDateIndex.Loan loan) {
+        overdue.add(loan);
+    }
+
+    void addDueSoon(DueDateIndex.Loan loan) {
+        dueSoon.add(loan);
+    }
+
+    public Patron getPatron() {
+        return patron;
+    }
+
+    public String getEmail() {
+        return patron.getEmail();
+    }
+
+    public List<DueDateIndex.Loan> getOverdue() {
+        return Collections.unmodifiableList(overdue);
+    }
+
+    public List<DueDateIndex.Loan> getDueSoon() {
+        return Collections.unmodifiableList(dueSoon);
+    }
+
+    /**
+     * Renders the digest as a plain-text email.
+     *
+     * @return Message with To and Subject headers followed by the body
+     */
+    public String toMessage() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("To: ").append(patron.getEmail()).append('\n');
+        sb.append("Subject: Library reminder: ").append(overdue.size()).append(" overdue, ")
+                .append(dueSoon.size()).append(" due soon\n\n");
+        sb.append("Dear ").append(patron.getName()).append(",\n");
+        if (!overdue.isEmpty()) {
+            sb.append("\nThese items are overdue:\n");
+            appendLoans(sb, overdue);
+        }
+        if (!dueSoon.isEmpty()) {
+            sb.append("\nThese items are due soon:\n");
+            appendLoans(sb, dueSoon);
+        }
+        return sb.toString();
+    }
+
+    private void appendLoans(StringBuilder sb, List<DueDateIndex.Loan> loans) {
+        for (DueDateIndex.Loan loan : loans) {
+            Book book = inventory.get(loan.getIsbn());
+            sb.append("  - ").append(book == null ? loan.getIsbn() : book.getTitle())
+                    .append(" (").append(loan.getIsbn()).append("), due ").append(loan.getDueDate()).append('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderDigest[" + patron.getPatronId() + ",overdue=" + overdue.size()
+                + ",dueSoon=" + dueSoon.size() + "]";
+    }
+}
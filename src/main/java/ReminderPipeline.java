@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Builds per-patron due-date reminder digests from a Checkout's due-date index and delivers
+ * them through a {@link ReminderSink} in batches, with bounded concurrency and retries.
+ */
+public class ReminderPipeline {
+    /** How long send(List) waits for delivery before giving up on batches not yet started. */
+    public static final Duration DEFAULT_SEND_TIMEOUT = Duration.ofHours(1);
+
+    private final ReminderSink sink;
+    private final int concurrency;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private volatile BiConsumer<List<ReminderDigest>, Exception> failureHandler;
+
+    /**
+     * Outcome of one delivery run.
+     */
+    public static class Report {
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private long skippedNoEmail;
+        private boolean timedOut;
+        private long elapsedMillis;
+
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public long getSkippedNoEmail() {
+            return skippedNoEmail;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Returns whether the run hit its timeout. Batches that had not started were counted as
+         * failed; batches still in flight may finish after send() returned.
+         *
+         * @return true if send() stopped waiting before every batch finished
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        @Override
+        public String toString() {
+            return "Report[delivered=" + getDelivered() + ",failed=" + getFailed() + ",retries=" + getRetries()
+                    + ",skippedNoEmail=" + skippedNoEmail + ",timedOut=" + timedOut
+                    + ",elapsedMillis=" + elapsedMillis + "]";
+        }
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param sink Where digests are delivered
+     * @param concurrency Maximum number of batches in flight at once
+     * @param batchSize Digests per sink call
+     * @param maxAttempts Delivery attempts per batch before it is counted as failed
+     * @param retryBackoff Wait before the first retry; doubled on each further retry
+     */
+    public ReminderPipeline(ReminderSink sink, int concurrency, int batchSize, int maxAttempts, Duration retryBackoff) {
+        if (concurrency <= 0 || batchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("concurrency, batchSize and maxAttempts must be positive");
+        }
+        this.sink = sink;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+    }
+
+    /**
+     * Sets a callback for batches that still fail after the last attempt. It runs on the
+     * delivery thread with the batch and the last exception; exceptions it throws are ignored.
+     *
+     * @param handler The callback, or null to only count failures
+     */
+    public void setFailureHandler(BiConsumer<List<ReminderDigest>, Exception> handler) {
+        this.failureHandler = handler;
+    }
+
+    /**
+     * Collects reminders as of the Checkout's own clock.
+     *
+     * @param checkout The Checkout whose loans are scanned
+     * @param daysAhead How many days ahead counts as "due soon"
+     * @return One digest per patron with at least one reminder
+     * @throws IllegalArgumentException If daysAhead is negative
+     */
+    public List<ReminderDigest> collect(Checkout checkout, int daysAhead) {
+        return collect(checkout, checkout.getClock().today(), daysAhead);
+    }
+
+    /**
+     * Groups overdue loans and loans due within the next {@code daysAhead} days into one
+     * digest per patron.
+     *
+     * @param checkout The Checkout whose loans are scanned
+     * @param today The current date
+     * @param daysAhead How many days ahead counts as "due soon" (0 = due today only)
+     * @return One digest per patron with at least one reminder
+     * @throws IllegalArgumentException If daysAhead is negative
+     */
+    public List<ReminderDigest> collect(Checkout checkout, LocalDate today, int daysAhead) {
+        if (daysAhead < 0) {
+            throw new IllegalArgumentException("daysAhead must not be negative: " + daysAhead);
+        }
+        DueDateIndex index = checkout.getDueDateIndex();
+        Map<Patron, ReminderDigest> digests = new LinkedHashMap<>();
+        for (DueDateIndex.Loan loan : index.overdue(today)) {
+            digests.computeIfAbsent(loan.getPatron(), p -> new ReminderDigest(p, checkout.getInventory()))
+                    .addOverdue(loan);
+        }
+        for (DueDateIndex.Loan loan : index.dueBetween(today, today.plusDays(daysAhead))) {
+            digests.computeIfAbsent(loan.getPatron(), p -> new ReminderDigest(p, checkout.getInventory()))
+                    .addDueSoon(loan);
+        }
+        return new ArrayList<>(digests.values());
+    }
+
+    /**
+     * Delivers digests and waits up to {@link #DEFAULT_SEND_TIMEOUT} for all batches to
+     * finish. Digests for patrons without an email address are skipped.
+     *
+     * @param digests Digests to send
+     * @return Delivery counts
+     * @throws InterruptedException If interrupted while waiting for delivery
+     */
+    public Report send(List<ReminderDigest> digests) throws InterruptedException {
+        return send(digests, DEFAULT_SEND_TIMEOUT);
+    }
+
+    /**
+     * Delivers digests and waits for all batches to finish, up to a deadline. When the
+     * deadline passes, batches that have not started are counted as failed and running ones
+     * are interrupted.
+     *
+     * @param digests Digests to send
+     * @param timeout Maximum time to wait for delivery
+     * @return Delivery counts
+     * @throws InterruptedException If interrupted while waiting for delivery
+     */
+    public Report send(List<ReminderDigest> digests, Duration timeout) throws InterruptedException {
+        Report report = new Report();
+        long start = System.currentTimeMillis();
+
+        List<ReminderDigest> sendable = new ArrayList<>(digests.size());
+        for (ReminderDigest digest : digests) {
+            String email = digest.getEmail();
+            if (email == null || email.isBlank()) {
+                report.skippedNoEmail++;
+            } else {
+                sendable.add(digest);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "reminder-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int from = 0; from < sendable.size(); from += batchSize) {
+                List<ReminderDigest> batch = sendable.subList(from, Math.min(from + batchSize, sendable.size()));
+                pool.execute(new Batch(batch, report));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (!pool.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            report.timedOut = true;
+            for (Runnable pending : pool.shutdownNow()) {
+                report.failed.addAndGet(((Batch) pending).digests.size());
+            }
+        }
+
+        report.elapsedMillis = System.currentTimeMillis() - start;
+        return report;
+    }
+
+    /**
+     * One sink call's worth of digests, kept as its own type so batches that never started
+     * can be counted after a timeout.
+     */
+    private final class Batch implements Runnable {
+        private final List<ReminderDigest> digests;
+        private final Report report;
+
+        Batch(List<ReminderDigest> digests, Report report) {
+            this.digests = digests;
+            this.report = report;
+        }
+
+        @Override
+        public void run() {
+            deliver(digests, report);
+        }
+    }
+
+    private void deliver(List<ReminderDigest> batch, Report report) {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                sink.deliver(batch);
+                report.delivered.addAndGet(batch.size());
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (attempt == maxAttempts) {
+                    failed(batch, e);
+                    break;
+                }
+                report.retries.incrementAndGet();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff *= 2;
+            }
+        }
+        report.failed.addAndGet(batch.size());
+    }
+
+    private void failed(List<ReminderDigest> batch, Exception e) {
+        BiConsumer<List<ReminderDigest>, Exception> handler = failureHandler;
+        if (handler != null) {
+            try {
+                handler.accept(batch, e);
+            } catch (RuntimeException ignored) {
+                // Delivery of the other batches goes on
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for due-date reminder digests (mail gateway, SMTP relay, file, test double).
+ * Implementations must be safe to call from several threads at once.
+ */
+public interface ReminderSink {
+    /**
+     * Delivers a batch of digests. Throwing causes the whole batch to be retried.
+     *
+     * @param batch Digests to deliver, one per patron
+     * @throws IOException If delivery failed and may be retried
+     */
+    void deliver(List<ReminderDigest> batch) throws IOException;
+}
@@ -0,0 +1,387 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Read replica of a Checkout. A background thread tails the log written by a
+ * {@link ReplicationLeader} and applies each write of the leader to a private Checkout in one
+ * step under a write lock. Queries run against that Checkout through read() under a read lock.
+ *
+ * Staleness is observable: getAppliedSequence() is the last leader record applied, and
+ * getStalenessMillis() is the time since the follower last reached the end of the log, which
+ * bounds how far behind the leader its answers can be. read(minSequence, ...) waits until a
+ * given leader sequence has been applied, which gives read-your-writes to a client that
+ * remembers ReplicationLeader.getLastSequence() after writing.
+ *
+ * Queries passed to read() must not modify the Checkout; leave the lookup filters disabled on
+ * replicas, since findBook() and findPatron() rebuild them lazily.
+ */
+public class ReplicationFollower implements Closeable {
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final Path log;
+    private final Checkout checkout;
+    private final long pollMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object progress = new Object();
+    private final Thread tailer;
+    private volatile boolean running = true;
+
+    private FileChannel channel;
+    private Object fileKey;
+    private long position; // end of the last leader write applied
+    private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+    private long lastResyncOffset = -1;
+
+    private volatile long appliedSequence;
+    private volatile long caughtUpAtMillis;
+    private volatile long lastApplyDelayMillis;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a follower and starts tailing the log from its beginning.
+     *
+     * @param log Log file written by the leader (it need not exist yet)
+     * @param clock Clock for the replica Checkout
+     * @param pollMillis How long to sleep after reaching the end of the log
+     */
+    public ReplicationFollower(Path log, LibraryClock clock, long pollMillis) {
+        if (pollMillis <= 0) {
+            throw new IllegalArgumentException("pollMillis must be positive");
+        }
+        this.log = log;
+        this.checkout = new Checkout(clock);
+        this.pollMillis = pollMillis;
+        this.tailer = new Thread(this::tail, "replication-follower");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    /**
+     * Runs a query against the replica as of its current applied sequence.
+     *
+     * @param query Read-only function of the replica Checkout
+     * @return The query result
+     */
+    public <T> T read(Function<Checkout, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(checkout);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until the given leader sequence has been applied, then runs a query.
+     *
+     * @param minSequence Leader sequence the answer must reflect
+     * @param timeoutMillis Maximum time to wait
+     * @param query Read-only function of the replica Checkout
+     * @return The query result
+     * @throws TimeoutException If the sequence is not applied in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public <T> T read(long minSequence, long timeoutMillis, Function<Checkout, T> query)
+            throws TimeoutException, InterruptedException {
+        if (!awaitApplied(minSequence, timeoutMillis)) {
+            throw new TimeoutException("Sequence " + minSequence + " not applied within " + timeoutMillis
+                    + " ms (applied " + appliedSequence + ")");
+        }
+        return read(query);
+    }
+
+    /**
+     * Waits until the given leader sequence has been applied.
+     *
+     * @param sequence Leader sequence to wait for
+     * @param timeoutMillis Maximum time to wait
+     * @return true if the sequence was applied, false on timeout or if the follower stopped
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            while (appliedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !running) {
+                    return false;
+                }
+                progress.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Returns how long ago the follower last read to the end of the log. Answers from read()
+     * include every leader write made before that moment.
+     *
+     * @return Staleness bound in milliseconds, or Long.MAX_VALUE before the first catch-up and
+     *         while the replica is being rebuilt
+     */
+    public long getStalenessMillis() {
+        long caughtUp = caughtUpAtMillis;
+        return caughtUp == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - caughtUp;
+    }
+
+    /**
+     * Returns the time between the leader writing the last applied record and the follower
+     * applying it.
+     *
+     * @return Replication delay in milliseconds
+     */
+    public long getLastApplyDelayMillis() {
+        return lastApplyDelayMillis;
+    }
+
+    /**
+     * Returns the error that stopped the follower, if any.
+     *
+     * @return The failure, or null while the follower is healthy
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void tail() {
+        try {
+            while (running) {
+                if (!poll()) {
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            // close() was called
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            running = false;
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads and applies whatever the leader has written since the last call.
+     *
+     * The read position only ever moves to the end of a complete leader write. Bytes of a
+     * write still in progress, or left torn by a crashed leader, are read again on the next
+     * poll, so a leader that truncates a failed write and writes new records in its place
+     * never leaves this follower in the middle of a line.
+     *
+     * @return true if more data may be waiting, false if the end of the log was reached
+     */
+    private boolean poll() throws IOException {
+        if (channel == null || replaced()) {
+            if (!Files.exists(log)) {
+                return false;
+            }
+            if (channel != null) {
+                // A different file now has the log's name; its history is unrelated to ours
+                channel.close();
+                reset();
+            }
+            channel = FileChannel.open(log, StandardOpenOption.READ);
+            fileKey = fileKey(log);
+        }
+        long readAt = System.currentTimeMillis();
+        long size = channel.size();
+        if (size < position) {
+            // The log was truncated below what we applied; start over from an empty replica
+            reset();
+        }
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        if (read <= 0) {
+            caughtUpAtMillis = readAt;
+            return false;
+        }
+
+        List<List<String[]>> batches = new ArrayList<>();
+        List<String[]> pending = new ArrayList<>();
+        byte[] bytes = buffer.array();
+        long expected = appliedSequence + 1;
+        int lineStart = 0;
+        int consumed = 0;
+        for (int i = 0; i < read; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String[] fields = ReplicationLog.split(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+            long seq = parse(fields, 0);
+            long commit = parse(fields, 2);
+            // Sequence numbers go up by one; only the first record of a fresh replica may start anywhere
+            if (seq < 0 || commit < seq || (seq != expected && !(position == 0 && lineStart == 0))) {
+                resync(position + lineStart);
+                return true;
+            }
+            expected = seq + 1;
+            pending.add(fields);
+            lineStart = i + 1;
+            if (seq == commit) {
+                batches.add(pending);
+                pending = new ArrayList<>();
+                consumed = lineStart;
+            }
+        }
+        if (batches.isEmpty() && read == buffer.capacity()) {
+            // One leader write is larger than the buffer
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            return true;
+        }
+        apply(batches);
+        position += consumed;
+        if (position >= size) {
+            caughtUpAtMillis = readAt;
+        }
+        return read == buffer.capacity();
+    }
+
+    private static long parse(String[] fields, int index) {
+        if (fields.length <= index + 1 || fields[index] == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fields[index]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Handles a record that does not continue the sequence already applied: the log was
+     * rewritten under this follower. Rebuilds the replica from the start of the file; if the
+     * same offset is bad again the log itself is corrupt and the follower stops.
+     */
+    private void resync(long offset) {
+        if (offset == lastResyncOffset) {
+            throw new IllegalStateException("Replication log is corrupt at byte " + offset);
+        }
+        lastResyncOffset = offset;
+        reset();
+    }
+
+    private boolean replaced() throws IOException {
+        Object current = fileKey(log);
+        return current != null && !current.equals(fileKey);
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void apply(List<List<String[]>> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        long last = appliedSequence;
+        long leaderMillis = 0;
+        lock.writeLock().lock();
+        try {
+            for (List<String[]> batch : batches) {
+                for (String[] fields : batch) {
+                    String[] record = new String[fields.length - 3];
+                    System.arraycopy(fields, 3, record, 0, record.length);
+                    ReplicationLog.apply(checkout, record);
+                    last = Long.parseLong(fields[0]);
+                    leaderMillis = Long.parseLong(fields[1]);
+                }
+            }
+            // Published before readers can see the new state, so a read never reports less than it shows
+            appliedSequence = last;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastResyncOffset = -1;
+        if (leaderMillis > 0) {
+            lastApplyDelayMillis = Math.max(0, System.currentTimeMillis() - leaderMillis);
+        }
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            checkout.getInventory().clear();
+            for (Patron patron : checkout.getPatrons().values()) {
+                for (String isbn : new ArrayList<>(patron.getCheckedOutBooks().keySet())) {
+                    patron.removeCheckedOutBook(isbn);
+                }
+            }
+            checkout.getPatrons().clear();
+            appliedSequence = 0;
+            // Until the rebuild reaches the end of the log the replica's answers have no bound
+            caughtUpAtMillis = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        position = 0;
+    }
+
+    /**
+     * Stops tailing the log. The replica keeps answering read() with its last state.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        tailer.interrupt();
+        try {
+            tailer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Runs a follower in its own JVM and prints its progress once per second.
+     * Usage: {@code java ReplicationFollower <log file>}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: java ReplicationFollower <log file>");
+            System.exit(1);
+        }
+        Path log = Paths.get(args[0]);
+        try (ReplicationFollower follower = new ReplicationFollower(log, LibraryClock.getDefault(), 10)) {
+            while (follower.getFailure() == null) {
+                Thread.sleep(1000);
+                int[] counts = follower.read(c -> new int[] {c.getInventory().size(), c.getPatrons().size(),
+                        c.countBooksByType(Book.BookType.FICTION, true)});
+                System.out.println("applied=" + follower.getAppliedSequence()
+                        + " stalenessMs=" + follower.getStalenessMillis()
+                        + " delayMs=" + follower.getLastApplyDelayMillis()
+                        + " books=" + counts[0] + " patrons=" + counts[1] + " fictionAvailable=" + counts[2]);
+            }
+            follower.getFailure().printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write side of Checkout replication. All mutations of the leader's Checkout go through this
+ * class, which applies them and then appends the resulting state of every book and patron
+ * they touched to a shared log file (see {@link ReplicationLog} for the format).
+ * {@link ReplicationFollower}s in this or other JVMs on the same host tail that file.
+ *
+ * Mutations are serialized, so the log order is the order in which the leader applied them.
+ * Records are written to the OS page cache without fsync, so followers on the same host see
+ * them right away. A client that needs read-your-writes on a follower keeps the value of
+ * getLastSequence() after its write and passes it to ReplicationFollower.read().
+ */
+public class ReplicationLeader implements Closeable {
+    private final Checkout checkout;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final StringBuilder line = new StringBuilder();
+    private volatile long sequence;
+
+    /**
+     * Starts a new log holding the full current state of the Checkout, so followers that start
+     * from an empty replica catch up from one write instead of the history of every earlier
+     * leader. The state is written to a sibling file that then replaces the log, which followers
+     * notice and rebuild from. Sequence numbers continue from the last complete write of the
+     * old log; whatever a crashed leader left half-written is dropped with it.
+     *
+     * @param checkout The Checkout this leader owns
+     * @param log Log file shared with followers
+     * @throws IOException If the log cannot be read, written or replaced
+     */
+    public ReplicationLeader(Checkout checkout, Path log) throws IOException {
+        if (checkout == null) {
+            throw new IllegalArgumentException("checkout must not be null");
+        }
+        this.checkout = checkout;
+        long lastSequence = 0;
+        if (Files.exists(log)) {
+            try (RandomAccessFile old = new RandomAccessFile(log.toFile(), "r")) {
+                lastSequence = ReplicationLog.tail(old)[1];
+            }
+        }
+        Path compacted = log.resolveSibling(log.getFileName() + ".compact");
+        this.file = new RandomAccessFile(compacted.toFile(), "rw");
+        this.channel = file.getChannel();
+        this.sequence = lastSequence;
+        try {
+            file.setLength(0);
+            publishAll();
+            // The open file follows the rename, so later writes append to the new log
+            Files.move(compacted, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            file.close();
+            Files.deleteIfExists(compacted);
+            throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+        }
+    }
+
+    public Checkout getCheckout() {
+        return checkout;
+    }
+
+    /**
+     * Returns the sequence number of the last record written. A follower whose applied
+     * sequence is at least this value reflects every mutation made before the call.
+     *
+     * @return Last written sequence number
+     */
+    public long getLastSequence() {
+        return sequence;
+    }
+
+    public synchronized void addBook(Book book) {
+        checkout.addBook(book);
+        publish(List.of(book), List.of());
+    }
+
+    public synchronized void registerPatron(Patron patron) {
+        checkout.registerPatron(patron);
+        publish(List.of(), List.of(patron));
+    }
+
+    /**
+     * Runs Checkout.checkoutBook() and publishes the book and patron.
+     *
+     * @param book The book to check out
+     * @param patron The borrowing patron
+     * @return The result code from Checkout.checkoutBook()
+     */
+    public synchronized double checkoutBook(Book book, Patron patron) {
+        double result;
+        if (patron == null) {
+            result = checkout.checkoutBook(book, null);
+        } else {
+            synchronized (patron) {
+                result = checkout.checkoutBook(book, patron);
+            }
+        }
+        publish(book == null ? List.of() : List.of(book), patron == null ? List.of() : List.of(patron));
+        return result;
+    }
+
+    /**
+     * Runs Checkout.returnBook() and publishes the book and patron.
+     *
+     * @param isbn ISBN of the returned book
+     * @param patron The returning patron
+     * @return The fine from Checkout.returnBook()
+     */
+    public synchronized double returnBook(String isbn, Patron patron) {
+        double fine = checkout.returnBook(isbn, patron);
+        Book book = checkout.getInventory().get(isbn);
+        publish(book == null ? List.of() : List.of(book), patron == null ? List.of() : List.of(patron));
+        return fine;
+    }
+
+    public synchronized double addFine(Patron patron, double amount) {
+        patron.addFine(amount);
+        publish(List.of(), List.of(patron));
+        return patron.getFineBalance();
+    }
+
+    public synchronized double payFine(Patron patron, double amount) {
+        double balance = patron.payFine(amount);
+        publish(List.of(), List.of(patron));
+        return balance;
+    }
+
+    public synchronized void setAccountSuspended(Patron patron, boolean suspended) {
+        patron.setAccountSuspended(suspended);
+        publish(List.of(), List.of(patron));
+    }
+
+    /**
+     * Runs Checkout.updateOverdueCounts() and publishes every patron.
+     *
+     * @return Total number of overdue loans
+     */
+    public synchronized int updateOverdueCounts() {
+        int overdue = checkout.updateOverdueCounts();
+        publish(List.of(), new ArrayList<>(checkout.getPatrons().values()));
+        return overdue;
+    }
+
+    /**
+     * Publishes a book that was changed directly instead of through this class.
+     *
+     * @param book The changed book
+     */
+    public synchronized void publishBook(Book book) {
+        publish(List.of(book), List.of());
+    }
+
+    /**
+     * Publishes a patron that was changed directly instead of through this class.
+     *
+     * @param patron The changed patron
+     */
+    public synchronized void publishPatron(Patron patron) {
+        publish(List.of(), List.of(patron));
+    }
+
+    /**
+     * Publishes every book and patron.
+     */
+    public synchronized void publishAll() {
+        publish(new ArrayList<>(checkout.getInventory().values()), new ArrayList<>(checkout.getPatrons().values()));
+    }
+
+    /**
+     * Writes one record per book and patron in a single write. Every record carries the
+     * sequence number of the last record of its write, and followers apply nothing until they
+     * have read up to it, so a follower never sees half of a mutation. A failed write is
+     * truncated away and rethrown as an UncheckedIOException; the leader is then ahead of its
+     * log until publishAll() succeeds.
+     */
+    private void publish(List<Book> books, List<Patron> patrons) {
+        if (books.isEmpty() && patrons.isEmpty()) {
+            return;
+        }
+        line.setLength(0);
+        long millis = System.currentTimeMillis();
+        long seq = sequence;
+        long commit = seq + books.size() + patrons.size();
+        for (Book book : books) {
+            line.append(++seq).append('\t').append(millis).append('\t').append(commit);
+            ReplicationLog.appendBook(line, book);
+            line.append('\n');
+        }
+        for (Patron patron : patrons) {
+            line.append(++seq).append('\t').append(millis).append('\t').append(commit);
+            ReplicationLog.appendPatron(line, patron);
+            line.append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(line.toString());
+        long start = -1;
+        try {
+            start = channel.position();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            try {
+                if (start >= 0) {
+                    channel.truncate(start);
+                }
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Could not append to the replication log", e);
+        }
+        sequence = seq;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record format shared by ReplicationLeader and ReplicationFollower.
+ *
+ * The log is a UTF-8 text file with one record per line:
+ * {@code seq \t leaderMillis \t commitSeq \t OP \t field...}, where commitSeq is the
+ * sequence number of the last record written together with this one. Records carry the complete state of one book
+ * or patron rather than the operation that changed it, so applying a record twice, or
+ * applying the latest record for a key without the earlier ones, gives the same result.
+ * Tabs, line breaks and backslashes inside fields are escaped; {@code \N} stands for null.
+ */
+final class ReplicationLog {
+    static final String BOOK = "BOOK";
+    static final String PATRON = "PATRON";
+
+    private static final String NULL = "\\N";
+
+    private ReplicationLog() {
+    }
+
+    /**
+     * Appends a BOOK record: ISBN, title, author, type, total copies, bitmap capacity and
+     * bitmap words in hex.
+     */
+    static void appendBook(StringBuilder line, Book book) {
+        field(line, BOOK);
+        field(line, book.getIsbn());
+        field(line, book.getTitle());
+        field(line, book.getAuthor());
+        field(line, book.getType() == null ? null : book.getType().name());
+        field(line, Integer.toString(book.getTotalCopies()));
+        field(line, Integer.toString(book.getCopyCapacity()));
+        StringBuilder words = new StringBuilder();
+        for (long word : book.getCopyBitmap()) {
+            if (words.length() > 0) {
+                words.append(',');
+            }
+            words.append(Long.toHexString(word));
+        }
+        field(line, words.toString());
+    }
+
+    /**
+     * Appends a PATRON record: ID, name, email, type, suspended flag, fine balance, overdue
+     * count, member date, loan count and then ISBN, due date and copy ID for each loan.
+     */
+    static void appendPatron(StringBuilder line, Patron patron) {
+        field(line, PATRON);
+        field(line, patron.getPatronId());
+        field(line, patron.getName());
+        field(line, patron.getEmail());
+        field(line, patron.getType() == null ? null : patron.getType().name());
+        field(line, Boolean.toString(patron.isAccountSuspended()));
+        field(line, Double.toString(patron.getFineBalance()));
+        field(line, Integer.toString(patron.getOverdueCount()));
+        field(line, patron.getMemberSince() == null ? null : patron.getMemberSince().toString());
+        Map<String, LocalDate> loans = patron.getCheckedOutBooks();
+        field(line, Integer.toString(loans.size()));
+        for (Map.Entry<String, LocalDate> loan : loans.entrySet()) {
+            field(line, loan.getKey());
+            field(line, loan.getValue() == null ? null : loan.getValue().toString());
+            field(line, Integer.toString(patron.getCheckedOutCopy(loan.getKey())));
+        }
+    }
+
+    /**
+     * Applies the fields of one record, starting at the OP field, to a Checkout.
+     *
+     * @param checkout The replica to update
+     * @param fields Decoded fields; fields[0] is the OP
+     */
+    static void apply(Checkout checkout, String[] fields) {
+        switch (fields[0]) {
+            case BOOK:
+                applyBook(checkout, fields);
+                break;
+            case PATRON:
+                applyPatron(checkout, fields);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown replication record: " + fields[0]);
+        }
+    }
+
+    private static void applyBook(Checkout checkout, String[] f) {
+        String isbn = f[1];
+        Book.BookType type = f[4] == null ? null : Book.BookType.valueOf(f[4]);
+        int total = Integer.parseInt(f[5]);
+        Book book = checkout.getInventory().get(isbn);
+        if (book == null || !same(book.getTitle(), f[2]) || !same(book.getAuthor(), f[3])
+                || book.getType() != type || book.getTotalCopies() != total) {
+            book = new Book(isbn, f[2], f[3], type, total);
+            checkout.addBook(book);
+        }
+        String[] hex = f[7].isEmpty() ? new String[0] : f[7].split(",");
+        long[] bitmap = new long[hex.length];
+        for (int i = 0; i < hex.length; i++) {
+            bitmap[i] = Long.parseUnsignedLong(hex[i], 16);
+        }
+        book.restoreCopyBitmap(Integer.parseInt(f[6]), bitmap);
+    }
+
+    private static void applyPatron(Checkout checkout, String[] f) {
+        String id = f[1];
+        Patron.PatronType type = f[4] == null ? null : Patron.PatronType.valueOf(f[4]);
+        Patron patron = checkout.getPatrons().get(id);
+        if (patron == null || !same(patron.getName(), f[2]) || !same(patron.getEmail(), f[3])
+                || patron.getType() != type) {
+            if (patron != null) {
+                // Replaced by a patron with different details; drop the old object's loans
+                for (String isbn : new ArrayList<>(patron.getCheckedOutBooks().keySet())) {
+                    patron.removeCheckedOutBook(isbn);
+                }
+            }
+            patron = new Patron(id, f[2], f[3], type);
+            checkout.registerPatron(patron);
+        }
+        patron.setAccountSuspended(Boolean.parseBoolean(f[5]));
+        patron.resetFines();
+        patron.addFine(Double.parseDouble(f[6]));
+        patron.setOverdueCount(Integer.parseInt(f[7]));
+        patron.setMemberSince(f[8] == null ? null : LocalDate.parse(f[8]));
+
+        int loanCount = Integer.parseInt(f[9]);
+        for (String isbn : new ArrayList<>(patron.getCheckedOutBooks().keySet())) {
+            patron.removeCheckedOutBook(isbn);
+        }
+        for (int i = 0; i < loanCount; i++) {
+            int at = 10 + i * 3;
+            LocalDate due = f[at + 1] == null ? null : LocalDate.parse(f[at + 1]);
+            patron.addCheckedOutBook(f[at], due, Integer.parseInt(f[at + 2]));
+        }
+    }
+
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void field(StringBuilder line, String value) {
+        line.append('\t');
+        if (value == null) {
+            line.append(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Splits a record line into its fields and unescapes them.
+     *
+     * @param line One log line without its terminating newline
+     * @return seq, leaderMillis and commitSeq as the first three fields, then OP and its arguments
+     */
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean isNull = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(isNull ? null : current.toString());
+                current.setLength(0);
+                isNull = false;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                switch (next) {
+                    case 't':
+                        current.append('\t');
+                        break;
+                    case 'n':
+                        current.append('\n');
+                        break;
+                    case 'r':
+                        current.append('\r');
+                        break;
+                    case 'N':
+                        isNull = true;
+                        break;
+                    default:
+                        current.append(next);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(isNull ? null : current.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Finds the end of the last complete leader write in a log file. Anything after it, a
+     * partial line or the first lines of a write the leader never finished, is left over from
+     * a crash and is not part of the log.
+     *
+     * @param file The open log file
+     * @return {length of the complete writes, last sequence number (0 if none)}
+     * @throws IOException If the file cannot be read
+     */
+    static long[] tail(RandomAccessFile file) throws IOException {
+        long end = file.length();
+        while (end > 0) {
+            file.seek(end - 1);
+            if (file.read() == '\n') {
+                break;
+            }
+            end--;
+        }
+        while (end > 0) {
+            long start = end - 1;
+            while (start > 0) {
+                file.seek(start - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                start--;
+            }
+            file.seek(start);
+            long seq = readNumber(file);
+            readNumber(file); // leaderMillis
+            long commit = readNumber(file);
+            if (seq == commit) {
+                return new long[] {end, seq};
+            }
+            end = start;
+        }
+        return new long[] {0, 0};
+    }
+
+    private static long readNumber(RandomAccessFile file) throws IOException {
+        long value = 0;
+        int c;
+        while ((c = file.read()) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
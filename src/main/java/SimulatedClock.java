@@ -0,0 +1,54 @@
+import java.time.LocalDate;
+
+/**
+ * Manually advanced clock for tests and soak runs. Time only moves when advanceDays() or
+ * setToday() is called, so months of due dates, overdues and fines can be replayed in seconds.
+ */
+public class SimulatedClock extends LibraryClock {
+    private volatile LocalDate today;
+
+    /**
+     * Creates a clock that starts on the given date.
+     *
+     * @param start The initial date
+     */
+    public SimulatedClock(LocalDate start) {
+        if (start == null) {
+            throw new IllegalArgumentException("start must not be null");
+        }
+        this.today = start;
+    }
+
+    @Override
+    public LocalDate today() {
+        return today;
+    }
+
+    /**
+     * Moves the clock forward (or backward, for negative values).
+     *
+     * @param days Number of days to move
+     * @return The new current date
+     */
+    public synchronized LocalDate advanceDays(long days) {
+        today = today.plusDays(days);
+        return today;
+    }
+
+    /**
+     * Jumps the clock to a specific date.
+     *
+     * @param date The new current date
+     */
+    public void setToday(LocalDate date) {
+        if (date == null) {
+            throw new IllegalArgumentException("date must not be null");
+        }
+        this.today = date;
+    }
+
+    @Override
+    public String toString() {
+        return "LibraryClock[simulated," + today + "]";
+    }
+}
@@ -0,0 +1,150 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent interning pool for catalog strings that are repeated across the model.
+ *
+ * intern() returns one shared instance for equal strings, so every Book, loan map key and
+ * transaction that refers to the same ISBN holds the same String. Only ISBNs go through the
+ * pool: a string that is stored once gains nothing and would still pay for an entry. Entries
+ * are weakly referenced: once no Book or loan uses a string any more, the garbage collector
+ * can reclaim it and the pool drops the entry.
+ */
+public final class StringPool {
+    /** Pool shared by the catalog model (Book ISBNs and Patron loan keys). */
+    public static final StringPool CATALOG = new StringPool();
+
+    private static final int STRING_HEADER_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final ConcurrentHashMap<WeakKey, WeakKey> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> cleared = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Returns the canonical instance of a string, adding it to the pool if needed.
+     *
+     * @param value The string to intern (null is returned unchanged)
+     * @return The pooled instance equal to {@code value}
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakKey probe = new WeakKey(value, null);
+        while (true) {
+            WeakKey existing = entries.get(probe);
+            String canonical = existing == null ? null : existing.get();
+            if (canonical != null) {
+                if (canonical != value) {
+                    hits.increment();
+                    bytesSaved.add(estimateBytes(value));
+                }
+                return canonical;
+            }
+            // Only a new entry can grow the map, so cleared ones are dropped here rather than on every hit
+            purge();
+            WeakKey key = new WeakKey(value, cleared);
+            WeakKey raced = entries.putIfAbsent(key, key);
+            if (raced == null) {
+                misses.increment();
+                return value;
+            }
+            canonical = raced.get();
+            if (canonical != null) {
+                hits.increment();
+                bytesSaved.add(estimateBytes(value));
+                return canonical;
+            }
+            // The racing entry was just cleared; drop it and try again
+            entries.remove(raced);
+        }
+    }
+
+    /**
+     * Returns the number of live entries (cleared entries are removed on the next intern()).
+     *
+     * @return Pool size
+     */
+    public int size() {
+        purge();
+        return entries.size();
+    }
+
+    /**
+     * Returns how many intern() calls were answered with an existing, different instance.
+     *
+     * @return Number of duplicates replaced
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the estimated heap held by the duplicate copies that intern() replaced, which
+     * becomes collectable once callers keep only the pooled instance.
+     *
+     * @return Estimated bytes (compact Latin-1 strings, 64-bit JVM with compressed oops)
+     */
+    public long getEstimatedBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * Returns a one-line summary of the pool and the current JVM heap usage.
+     *
+     * @return Heap usage report
+     */
+    public String report() {
+        Runtime rt = Runtime.getRuntime();
+        long usedHeap = rt.totalMemory() - rt.freeMemory();
+        return "StringPool[entries=" + size() + ",duplicatesReplaced=" + getHitCount()
+                + ",estimatedBytesSaved=" + getEstimatedBytesSaved()
+                + ",heapUsed=" + usedHeap + ",heapMax=" + rt.maxMemory() + "]";
+    }
+
+    private void purge() {
+        Object ref;
+        while ((ref = cleared.poll()) != null) {
+            entries.remove(ref);
+        }
+    }
+
+    private static long estimateBytes(String s) {
+        return STRING_HEADER_BYTES + ((ARRAY_HEADER_BYTES + s.length() + 7) & ~7L);
+    }
+
+    /**
+     * Weak reference that compares by the referent's value. A cleared key is only equal to itself,
+     * which lets purge() remove it by identity.
+     */
+    private static final class WeakKey extends WeakReference<String> {
+        private final int hash;
+
+        WeakKey(String value, ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof WeakKey)) return false;
+            String value = get();
+            return value != null && value.equals(((WeakKey) obj).get());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the nightly auto-renewal batch.
+ */
+public class AutoRenewalEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+    private static final String ISBN = "0123456789";
+
+    private Checkout checkout;
+    private Book book;
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        checkout = new Checkout(new SimulatedClock(TODAY));
+        book = new Book(ISBN, "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        checkout.addBook(book);
+        dir = Files.createTempDirectory("renewal");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private Patron patron(String id, LocalDate due) {
+        Patron patron = new Patron(id, "Patron " + id, id + "@example.org", Patron.PatronType.STUDENT);
+        patron.addCheckedOutBook(ISBN, due);
+        checkout.registerPatron(patron);
+        return patron;
+    }
+
+    private static LocalDate renewed(Patron patron) {
+        return TODAY.plusDays(patron.getLoanPeriodDays(Book.BookType.FICTION));
+    }
+
+    @Test
+    @DisplayName("Only loans due between today and the end of the window are renewed")
+    public void testRenewalWindow() throws Exception {
+        Patron dueToday = patron("P-1", TODAY);
+        Patron dueAtEdge = patron("P-2", TODAY.plusDays(3));
+        Patron dueLater = patron("P-3", TODAY.plusDays(4));
+        Patron overdue = patron("P-4", TODAY.minusDays(1));
+
+        AutoRenewalEngine.Report report = new AutoRenewalEngine(checkout, 2, 2).run(3);
+
+        assertEquals(renewed(dueToday), dueToday.getCheckedOutBooks().get(ISBN));
+        assertEquals(renewed(dueAtEdge), dueAtEdge.getCheckedOutBooks().get(ISBN));
+        assertEquals(TODAY.plusDays(4), dueLater.getCheckedOutBooks().get(ISBN));
+        assertEquals(TODAY.minusDays(1), overdue.getCheckedOutBooks().get(ISBN));
+        assertEquals(4, report.getPatronsScanned());
+        assertEquals(2, report.getLoansRenewed());
+    }
+
+    @Test
+    @DisplayName("Patrons who fail the eligibility check keep their due dates")
+    public void testIneligiblePatronSkipped() throws Exception {
+        Patron suspended = patron("P-1", TODAY.plusDays(1));
+        suspended.setAccountSuspended(true);
+        Patron fined = patron("P-2", TODAY.plusDays(1));
+        fined.addFine(10.0);
+        Patron eligible = patron("P-3", TODAY.plusDays(1));
+
+        AutoRenewalEngine.Report report = new AutoRenewalEngine(checkout, 10, 1).run(3);
+
+        assertEquals(TODAY.plusDays(1), suspended.getCheckedOutBooks().get(ISBN));
+        assertEquals(TODAY.plusDays(1), fined.getCheckedOutBooks().get(ISBN));
+        assertEquals(renewed(eligible), eligible.getCheckedOutBooks().get(ISBN));
+        assertEquals(2, report.getSkippedIneligible());
+        assertEquals(1, report.getLoansRenewed());
+    }
+
+    @Test
+    @DisplayName("A title with pending demand is not renewed")
+    public void testPendingDemandSkipped() throws Exception {
+        Patron patron = patron("P-1", TODAY.plusDays(1));
+        book.setAvailableCopies(0);
+
+        AutoRenewalEngine engine = new AutoRenewalEngine(checkout, 10, 1);
+        AutoRenewalEngine.Report report = engine.run(3);
+        assertEquals(TODAY.plusDays(1), patron.getCheckedOutBooks().get(ISBN));
+        assertEquals(1, report.getSkippedPendingDemand());
+
+        book.setAvailableCopies(5);
+        engine.setPendingDemand(isbn -> isbn.equals(ISBN));
+        assertEquals(1, engine.run(3).getSkippedPendingDemand());
+        assertEquals(TODAY.plusDays(1), patron.getCheckedOutBooks().get(ISBN));
+
+        engine.setPendingDemand(isbn -> false);
+        assertEquals(1, engine.run(3).getLoansRenewed());
+        assertEquals(renewed(patron), patron.getCheckedOutBooks().get(ISBN));
+    }
+
+    @Test
+    @DisplayName("A checkpointed run skips partitions that already completed")
+    public void testResumeFromCheckpoint() throws Exception {
+        Patron[] patrons = new Patron[4];
+        for (int i = 0; i < patrons.length; i++) {
+            patrons[i] = patron("P-" + i, TODAY.plusDays(1));
+        }
+        Path checkpoint = dir.resolve("renewal.checkpoint");
+        Files.writeString(checkpoint, "date=" + TODAY + " window=3 patrons=4 partitionSize=2"
+                + System.lineSeparator() + "0" + System.lineSeparator(), StandardCharsets.UTF_8);
+
+        AutoRenewalEngine engine = new AutoRenewalEngine(checkout, 2, 2);
+        AutoRenewalEngine.Report report = engine.run(3, checkpoint);
+
+        assertEquals(2, report.getPartitions());
+        assertEquals(1, report.getPartitionsResumed());
+        assertEquals(2, report.getPatronsScanned());
+        assertEquals(TODAY.plusDays(1), patrons[0].getCheckedOutBooks().get(ISBN));
+        assertEquals(TODAY.plusDays(1), patrons[1].getCheckedOutBooks().get(ISBN));
+        assertEquals(renewed(patrons[2]), patrons[2].getCheckedOutBooks().get(ISBN));
+        assertEquals(renewed(patrons[3]), patrons[3].getCheckedOutBooks().get(ISBN));
+
+        AutoRenewalEngine.Report again = engine.run(3, checkpoint);
+        assertEquals(2, again.getPartitionsResumed());
+        assertEquals(0, again.getPatronsScanned());
+
+        AutoRenewalEngine.Report otherWindow = engine.run(5, checkpoint);
+        assertEquals(0, otherWindow.getPartitionsResumed(), "A checkpoint from another run is discarded");
+        assertEquals(4, otherWindow.getPatronsScanned());
+    }
+
+    @Test
+    @DisplayName("A renewal waits for a patron whose loans are being changed elsewhere")
+    public void testRenewalTakesPatronLock() throws Exception {
+        Patron patron = patron("P-1", TODAY.plusDays(1));
+        AutoRenewalEngine engine = new AutoRenewalEngine(checkout, 10, 1);
+        AtomicReference<AutoRenewalEngine.Report> result = new AtomicReference<>();
+        Thread batch = new Thread(() -> {
+            try {
+                result.set(engine.run(3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        synchronized (patron) {
+            batch.start();
+            Thread.sleep(200);
+            assertTrue(batch.isAlive(), "The engine must not renew while the patron is locked");
+            // A return under the same lock: the engine then sees no loan to renew
+            assertEquals(0.0, checkout.returnBook(ISBN, patron), 0.0);
+        }
+        batch.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(patron.hasBookCheckedOut(ISBN));
+        assertEquals(0, result.get().getLoansRenewed());
+    }
+
+    @Test
+    @DisplayName("After a failed partition run() throws only once every worker has stopped")
+    public void testFailedPartitionStopsWorkers() throws Exception {
+        List<Patron> patrons = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            patrons.add(patron(String.format("P-%03d", i), TODAY.plusDays(1)));
+        }
+        AtomicInteger checked = new AtomicInteger();
+        CountDownLatch failing = new CountDownLatch(1);
+        AutoRenewalEngine engine = new AutoRenewalEngine(checkout, 10, 4);
+        engine.setPendingDemand(isbn -> {
+            if (checked.incrementAndGet() == 20) {
+                failing.countDown();
+                throw new IllegalStateException("hold queue unavailable");
+            }
+            // A slow lookup, so the later partitions are still queued when the failure is seen
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        });
+
+        assertThrows(IllegalStateException.class, () -> engine.run(3));
+        assertEquals(0, failing.getCount());
+        int afterThrow = checked.get();
+        List<LocalDate> dueDates = new ArrayList<>();
+        for (Patron patron : patrons) {
+            dueDates.add(patron.getCheckedOutBooks().get(ISBN));
+        }
+        Thread.sleep(200);
+        assertEquals(afterThrow, checked.get(), "No worker may still be renewing");
+        assertTrue(afterThrow < patrons.size(), "The remaining partitions were cancelled");
+        for (int i = 0; i < patrons.size(); i++) {
+            assertEquals(dueDates.get(i), patrons.get(i).getCheckedOutBooks().get(ISBN));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for coalesced availability subscriptions. The window is long enough that only the
+ * explicit flush() calls publish.
+ */
+public class AvailabilityHubTest {
+
+    private static final String ISBN = "0123456789";
+
+    private AvailabilityHub hub;
+    private Checkout checkout;
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        hub = new AvailabilityHub(3_600_000, 4);
+        checkout = new Checkout();
+        book = new Book(ISBN, "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        checkout.addBook(book);
+        checkout.setAvailabilityHub(hub);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hub.close();
+    }
+
+    private static List<AvailabilityHub.Event> drain(AvailabilityHub.Subscription subscription) {
+        List<AvailabilityHub.Event> events = new ArrayList<>();
+        subscription.drainTo(events);
+        return events;
+    }
+
+    @Test
+    @DisplayName("A burst of checkouts in one window becomes one event with the final count")
+    public void testBurstIsCoalesced() {
+        AvailabilityHub.Subscription subscription = hub.subscribe(Set.of(ISBN), Set.of());
+        for (int i = 0; i < 4; i++) {
+            book.checkout();
+        }
+        hub.flush();
+
+        List<AvailabilityHub.Event> events = drain(subscription);
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).getAvailableCopies());
+        assertEquals(4, hub.getNotificationCount());
+        assertEquals(1, hub.getEventCount());
+    }
+
+    @Test
+    @DisplayName("A checkout and return in the same window send nothing")
+    public void testNetZeroChangeIsSuppressed() {
+        AvailabilityHub.Subscription subscription = hub.subscribe(Set.of(ISBN), Set.of());
+        book.checkout();
+        book.returnBook();
+        hub.flush();
+
+        assertNull(subscription.poll());
+        assertEquals(0, hub.getEventCount());
+    }
+
+    @Test
+    @DisplayName("A title matching both an ISBN and a type subscription is delivered once")
+    public void testNoDuplicateDelivery() {
+        AvailabilityHub.Subscription both = hub.subscribe(Set.of(ISBN), Set.of(Book.BookType.FICTION));
+        AvailabilityHub.Subscription otherType = hub.subscribe(Set.of(), Set.of(Book.BookType.TEXTBOOK));
+        book.checkout();
+        hub.flush();
+
+        assertEquals(1, drain(both).size());
+        assertNull(otherType.poll());
+    }
+
+    @Test
+    @DisplayName("A full queue drops its oldest event and keeps the newest")
+    public void testDropOldest() {
+        AvailabilityHub.Subscription subscription = hub.subscribe(Set.of(ISBN), Set.of());
+        for (int i = 0; i < 5; i++) {
+            book.checkout();
+            hub.flush();
+        }
+
+        List<AvailabilityHub.Event> events = drain(subscription);
+        assertEquals(4, events.size());
+        assertEquals(3, events.get(0).getAvailableCopies());
+        assertEquals(0, events.get(3).getAvailableCopies());
+        assertEquals(1, subscription.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("A replaced book publishes its own count and the old object goes quiet")
+    public void testReplacedBook() {
+        AvailabilityHub.Subscription subscription = hub.subscribe(Set.of(ISBN), Set.of());
+        book.checkout();
+        book.checkout();
+        Book replacement = new Book(ISBN, "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 10);
+        replacement.setAvailableCopies(8);
+        checkout.addBook(replacement);
+        hub.flush();
+
+        List<AvailabilityHub.Event> events = drain(subscription);
+        assertEquals(1, events.size());
+        assertEquals(8, events.get(0).getAvailableCopies());
+        assertEquals(10, events.get(0).getTotalCopies());
+
+        book.checkout();
+        hub.flush();
+        assertNull(subscription.poll(), "The replaced book must not publish any more");
+    }
+
+    @Test
+    @DisplayName("Closing subscriptions removes their ISBN entries")
+    public void testSubscriptionCloseReleasesEntries() {
+        for (int i = 0; i < 100; i++) {
+            hub.subscribe(Set.of(String.format("%010d", i), ISBN), Set.of()).close();
+        }
+        AvailabilityHub.Subscription remaining = hub.subscribe(Set.of(ISBN), Set.of());
+        assertEquals(1, hub.getSubscribedIsbnCount());
+        remaining.close();
+        assertEquals(0, hub.getSubscribedIsbnCount());
+    }
+
+    @Test
+    @DisplayName("Unwatching a book forgets its ISBN unless a replacement is watched")
+    public void testUnwatchReleasesEntries() {
+        for (int i = 0; i < 100; i++) {
+            Book watched = new Book(String.format("%010d", i + 1), "Title " + i, "Author " + i,
+                    Book.BookType.FICTION, 2);
+            hub.watch(watched);
+            watched.checkout();
+            hub.unwatch(watched);
+        }
+        hub.flush();
+        assertEquals(0, hub.getEventCount(), "A change of an unwatched book is not published");
+        assertEquals(1, hub.getPublishedIsbnCount());
+
+        Book replacement = new Book(ISBN, "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        hub.watch(replacement);
+        hub.unwatch(book);
+        assertEquals(1, hub.getPublishedIsbnCount(), "The replacement keeps the ISBN's last count");
+        hub.unwatch(replacement);
+        assertEquals(0, hub.getPublishedIsbnCount());
+    }
+}
@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for per-copy tracking and the availability bitmap in Book.
+ */
+public class BookCopyTest {
+
+    @Test
+    @DisplayName("Checkouts take distinct copies until none are left")
+    public void testCheckoutCopies() {
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 3);
+        assertEquals(0, book.checkoutCopy());
+        assertEquals(1, book.checkoutCopy());
+        assertEquals(2, book.checkoutCopy());
+        assertEquals(-1, book.checkoutCopy());
+        assertFalse(book.isAvailable());
+        assertEquals(0, book.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Returning a copy flips exactly that copy back")
+    public void testReturnSpecificCopy() {
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 3);
+        book.checkoutCopy();
+        int second = book.checkoutCopy();
+
+        assertTrue(book.returnCopy(second));
+        assertTrue(book.isCopyAvailable(second));
+        assertFalse(book.isCopyAvailable(0));
+        assertFalse(book.returnCopy(second), "Copy is already on the shelf");
+        assertEquals(2, book.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Large copy sets are not capped at 100")
+    public void testNoCapOnLargeSets() {
+        Book book = new Book("978-0-1234-5678-9", "Introduction to Java", "John Smith", Book.BookType.TEXTBOOK, 250);
+        for (int i = 0; i < 250; i++) {
+            book.checkout();
+        }
+        for (int i = 0; i < 250; i++) {
+            book.returnBook();
+        }
+        assertEquals(250, book.getAvailableCopies());
+        book.returnBook();
+        assertEquals(250, book.getAvailableCopies(), "Returns never exceed the copies owned");
+    }
+
+    @Test
+    @DisplayName("Barcodes map back to copy IDs")
+    public void testBarcodes() {
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        assertEquals("0123456789/5", book.getCopyBarcode(4));
+        assertEquals(4, book.getCopyId("0123456789/5"));
+        assertEquals(-1, book.getCopyId("0123456789/6"));
+        assertEquals(-1, book.getCopyId("9999999999/1"));
+    }
+
+    @Test
+    @DisplayName("Checkout.returnBook puts back the copy the patron borrowed")
+    public void testCheckoutReturnsBorrowedCopy() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 3);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.addBook(book);
+        checkout.registerPatron(patron);
+        book.checkoutCopy();
+        int copyId = book.checkoutCopy();
+        patron.addCheckedOutBook(book.getIsbn(), checkout.getClock().today().plusDays(30), copyId);
+
+        checkout.returnBook(book.getIsbn(), patron);
+
+        assertTrue(book.isCopyAvailable(copyId));
+        assertFalse(book.isCopyAvailable(0));
+        assertEquals(-1, patron.getCheckedOutCopy(book.getIsbn()));
+    }
+
+    @Test
+    @DisplayName("Reference books start with no copies on the shelf")
+    public void testReferenceBook() {
+        Book book = new Book("978-0-9999-8888-7", "Data Structures Reference", "Bob Johnson",
+                Book.BookType.REFERENCE, 2);
+        assertEquals(0, book.getAvailableCopies());
+        assertEquals(-1, book.checkoutCopy());
+        book.setAvailableCopies(1);
+        assertTrue(book.isAvailable());
+    }
+
+    @Test
+    @DisplayName("Shelf counts stay between zero and the copies owned")
+    public void testCountStaysInRange() {
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 3);
+        book.setAvailableCopies(-2);
+        assertEquals(0, book.getAvailableCopies());
+        assertFalse(book.isAvailable());
+        book.setAvailableCopies(4);
+        assertEquals(3, book.getAvailableCopies(), "Counts above the tracked copies are clamped");
+        assertTrue(book.isAvailable());
+
+        book.returnBook();
+        assertEquals(3, book.getAvailableCopies(), "Returning with every copy in changes nothing");
+        book.setAvailableCopies(0);
+        book.resetAvailability();
+        assertEquals(3, book.getAvailableCopies());
+        assertEquals(3, book.getCopyCapacity());
+    }
+
+    @Test
+    @DisplayName("checkAvailability() keeps its flag semantics")
+    public void testCheckAvailabilityFlag() {
+        Book empty = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 0);
+        assertTrue(empty.checkAvailability(), "Circulating books start flagged available");
+        assertFalse(empty.isAvailable());
+
+        Book book = new Book("978-0-1234-5678-9", "Introduction to Java", "John Smith", Book.BookType.TEXTBOOK, 1);
+        book.checkout();
+        assertFalse(book.checkAvailability());
+        book.returnBook();
+        assertTrue(book.checkAvailability());
+    }
+
+    @Test
+    @DisplayName("Recording a loan of a known copy interns the ISBN once")
+    public void testLoanInternsOnce() {
+        Book book = new Book("978-0-5555-0001-1", "Interned", "Author", Book.BookType.FICTION, 1);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        long hits = StringPool.CATALOG.getHitCount();
+        patron.addCheckedOutBook(new String(book.getIsbn()), LocalDate.of(2026, 3, 1), book.checkoutCopy());
+        assertEquals(1, StringPool.CATALOG.getHitCount() - hits);
+        String key = patron.getCheckedOutBooks().keySet().iterator().next();
+        assertSame(book.getIsbn(), key);
+    }
+}
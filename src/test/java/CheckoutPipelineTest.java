@@ -0,0 +1,218 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the single-writer ring buffer in front of Checkout. Commands are fines and
+ * payments so the results do not depend on checkoutBook().
+ */
+public class CheckoutPipelineTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private Checkout checkout;
+    private CheckoutPipeline pipeline;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    private Patron patron(int i) {
+        Patron patron = new Patron("P-" + i, "Patron " + i, null, Patron.PatronType.STUDENT);
+        checkout.registerPatron(patron);
+        return patron;
+    }
+
+    /**
+     * Listener that records what it sees and can be held on its first command.
+     */
+    private static final class Recorder implements CheckoutPipeline.CommandListener {
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+        final List<String> patrons = Collections.synchronizedList(new ArrayList<>());
+        final List<Double> amounts = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> endOfBatch = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release;
+
+        Recorder(boolean hold) {
+            release = new CountDownLatch(hold ? 1 : 0);
+        }
+
+        @Override
+        public void onCommand(CheckoutPipeline.Command command, long sequence, boolean end) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sequences.add(sequence);
+            patrons.add(command.getPatron().getPatronId());
+            amounts.add(command.getAmount());
+            endOfBatch.add(end);
+        }
+    }
+
+    @Test
+    @DisplayName("Commands from several producers are applied and seen in one order")
+    public void testOrderingAcrossProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 500;
+        Recorder recorder = new Recorder(false);
+        pipeline = new CheckoutPipeline(checkout, 16, recorder);
+        Patron[] patrons = new Patron[producers];
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            patrons[p] = patron(p);
+            Patron patron = patrons[p];
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= perProducer; i++) {
+                    pipeline.submitFine(patron, i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        pipeline.close();
+
+        int total = producers * perProducer;
+        assertEquals(total, recorder.sequences.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(Long.valueOf(i), recorder.sequences.get(i));
+        }
+        // Each producer's own commands keep their submission order
+        for (Patron patron : patrons) {
+            double last = 0;
+            for (int i = 0; i < total; i++) {
+                if (recorder.patrons.get(i).equals(patron.getPatronId())) {
+                    assertEquals(last + 1, recorder.amounts.get(i), 0.0);
+                    last = recorder.amounts.get(i);
+                }
+            }
+            assertEquals(perProducer, last, 0.0);
+            assertEquals(perProducer * (perProducer + 1) / 2.0, patron.getFineBalance(), 0.0001);
+        }
+        assertEquals(total - 1, pipeline.getAppliedSequence());
+    }
+
+    @Test
+    @DisplayName("Producers wait when the ring wraps onto a command listeners have not seen")
+    public void testBackPressure() throws Exception {
+        Recorder recorder = new Recorder(true);
+        pipeline = new CheckoutPipeline(checkout, 4, recorder);
+        Patron patron = patron(0);
+        AtomicInteger submitted = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 8; i++) {
+                pipeline.submitFine(patron, 1.0);
+                submitted.incrementAndGet();
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        try {
+            assertTrue(recorder.entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertEquals(4, submitted.get(), "Only a full ring of commands can be in flight");
+            assertTrue(producer.isAlive());
+        } finally {
+            recorder.release.countDown();
+        }
+        producer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertEquals(8, submitted.get());
+        pipeline.close();
+        assertEquals(8, recorder.sequences.size());
+        assertEquals(8.0, patron.getFineBalance(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("close() applies and publishes every command already submitted")
+    public void testCloseDrains() throws Exception {
+        CheckoutPipeline.Metrics metrics = new CheckoutPipeline.Metrics();
+        pipeline = new CheckoutPipeline(checkout, 8, metrics);
+        Patron patron = patron(0);
+        List<CompletableFuture<Double>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(i % 2 == 0 ? pipeline.submitFine(patron, 2.0) : pipeline.submitPayment(patron, 1.0));
+        }
+        pipeline.close();
+
+        for (CompletableFuture<Double> future : futures) {
+            assertTrue(future.isDone());
+        }
+        assertEquals(500.0, futures.get(999).get(), 0.0001);
+        assertEquals(500, metrics.getCount(CheckoutPipeline.CommandType.ADD_FINE));
+        assertEquals(500, metrics.getCount(CheckoutPipeline.CommandType.PAY_FINE));
+        assertThrows(IllegalStateException.class, () -> pipeline.submitFine(patron, 1.0));
+    }
+
+    @Test
+    @DisplayName("A throwing listener is counted and does not stall producers or other listeners")
+    public void testListenerFailureDoesNotStall() throws Exception {
+        CheckoutPipeline.Metrics metrics = new CheckoutPipeline.Metrics();
+        CheckoutPipeline.CommandListener broken = (command, sequence, end) -> {
+            throw new IllegalStateException("journal unavailable");
+        };
+        pipeline = new CheckoutPipeline(checkout, 4, broken, metrics);
+        List<Long> reported = Collections.synchronizedList(new ArrayList<>());
+        pipeline.setListenerErrorHandler((sequence, e) -> reported.add(sequence));
+        Patron patron = patron(0);
+        CompletableFuture<Double> last = null;
+        for (int i = 0; i < 100; i++) {
+            last = pipeline.submitFine(patron, 0.5);
+        }
+        assertEquals(50.0, last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 0.0001);
+        pipeline.close();
+
+        assertEquals(100, pipeline.getListenerFailureCount());
+        assertEquals(100, reported.size());
+        assertEquals(100, metrics.getCount(CheckoutPipeline.CommandType.ADD_FINE));
+    }
+
+    @Test
+    @DisplayName("endOfBatch marks the last command available to the consumer")
+    public void testEndOfBatch() throws Exception {
+        Recorder recorder = new Recorder(true);
+        CheckoutPipeline.Metrics metrics = new CheckoutPipeline.Metrics();
+        pipeline = new CheckoutPipeline(checkout, 8, recorder, metrics);
+        Patron patron = patron(0);
+
+        pipeline.submitFine(patron, 1.0);
+        assertTrue(recorder.entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<Double> last = null;
+        for (int i = 0; i < 3; i++) {
+            last = pipeline.submitFine(patron, 1.0);
+        }
+        try {
+            last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            recorder.release.countDown();
+        }
+        pipeline.close();
+
+        assertEquals(List.of(true, false, false, true), recorder.endOfBatch);
+        assertEquals(2, metrics.getBatchCount());
+        assertEquals(3, metrics.getMaxBatchSize());
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trip tests for the binary Checkout snapshot.
+ */
+public class CheckoutSnapshotTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("checkout", ".snap");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("Inventory, patrons, loans, fines and open transactions survive a round trip")
+    public void testRoundTrip() throws IOException {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-1234-5678-9", "Introduction to Java", "John Smith", Book.BookType.TEXTBOOK, 3);
+        Book reference = new Book("978-0-9999-8888-7", "Data Structures Reference", "Bob Johnson",
+                Book.BookType.REFERENCE, 1);
+        checkout.addBook(book);
+        checkout.addBook(reference);
+        int copyId = book.checkoutCopy();
+
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        LocalDate due = LocalDate.of(2026, 3, 1);
+        patron.addCheckedOutBook(book.getIsbn(), due, copyId);
+        patron.addFine(2.75);
+        patron.setOverdueCount(1);
+        patron.setAccountSuspended(true);
+        patron.setMemberSince(LocalDate.of(2019, 9, 1));
+        checkout.registerPatron(patron);
+        checkout.registerPatron(new Patron("P001", "No Email", null, Patron.PatronType.CHILD));
+        checkout.recordTransaction(patron, book, LocalDate.of(2026, 1, 30), due);
+
+        CheckoutSnapshot.write(checkout, file);
+        Checkout loaded = CheckoutSnapshot.read(file);
+
+        Book loadedBook = loaded.getInventory().get(book.getIsbn());
+        assertEquals("Introduction to Java", loadedBook.getTitle());
+        assertEquals(Book.BookType.TEXTBOOK, loadedBook.getType());
+        assertEquals(3, loadedBook.getTotalCopies());
+        assertEquals(2, loadedBook.getAvailableCopies());
+        assertFalse(loadedBook.isCopyAvailable(copyId));
+        assertFalse(loaded.getInventory().get(reference.getIsbn()).isAvailable());
+
+        Patron loadedPatron = loaded.getPatrons().get("P-10001");
+        assertEquals("alice@university.edu", loadedPatron.getEmail());
+        assertEquals(due, loadedPatron.getCheckedOutBooks().get(book.getIsbn()));
+        assertEquals(copyId, loadedPatron.getCheckedOutCopy(book.getIsbn()));
+        assertEquals(2.75, loadedPatron.getFineBalance(), 0.0001);
+        assertEquals(1, loadedPatron.getOverdueCount());
+        assertTrue(loadedPatron.isAccountSuspended());
+        assertEquals(LocalDate.of(2019, 9, 1), loadedPatron.getMemberSince());
+        assertNull(loaded.getPatrons().get("P001").getEmail());
+        assertEquals(1, loaded.getOpenTransactions().size());
+    }
+
+    @Test
+    @DisplayName("Large inventories are split into chunks and reloaded completely")
+    public void testManyChunks() throws IOException {
+        Checkout checkout = new Checkout();
+        for (int i = 0; i < 150_000; i++) {
+            checkout.addBook(new Book(String.format("%010d", i), "Title " + (i % 100), "Author " + (i % 50),
+                    Book.BookType.FICTION, 1 + i % 4));
+        }
+        CheckoutSnapshot.write(checkout, file);
+        Checkout loaded = CheckoutSnapshot.read(file);
+
+        assertEquals(150_000, loaded.getInventory().size());
+        assertEquals(4, loaded.getInventory().get("0000149999").getTotalCopies());
+    }
+
+    @Test
+    @DisplayName("A file that is not a snapshot is rejected")
+    public void testRejectsForeignFile() throws IOException {
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> CheckoutSnapshot.read(file));
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the cached system clock and simulated-time circulation.
+ */
+public class LibraryClockTest {
+
+    @AfterEach
+    public void restoreDefault() {
+        LibraryClock.resetDefault();
+    }
+
+    @Test
+    @DisplayName("System clock returns the same cached instance within a day")
+    public void testSystemClockCachesDate() {
+        LibraryClock clock = LibraryClock.system(ZoneId.systemDefault());
+        LocalDate first = clock.today();
+        LocalDate second = clock.today();
+        assertTrue(Math.abs(first.toEpochDay() - LocalDate.now().toEpochDay()) <= 1);
+        if (first.equals(second)) {
+            assertSame(first, second, "Date should be reused until midnight");
+        }
+    }
+
+    @Test
+    @DisplayName("Returning a book after fast-forwarding charges the overdue fine")
+    public void testSimulatedReturnFine() {
+        SimulatedClock clock = new SimulatedClock(LocalDate.of(2026, 1, 1));
+        Checkout checkout = new Checkout(clock);
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.addBook(book);
+        checkout.registerPatron(patron);
+        book.checkout();
+        patron.addCheckedOutBook(book.getIsbn(), clock.today().plusDays(patron.getLoanPeriodDays()));
+
+        clock.advanceDays(30 + 10);
+        double fine = checkout.returnBook(book.getIsbn(), patron);
+
+        assertEquals(3.25, fine, 0.001, "10 days overdue FICTION");
+        assertEquals(3.25, patron.getFineBalance(), 0.001);
+        assertEquals(5, book.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Overdue counts follow the simulated date")
+    public void testUpdateOverdueCounts() {
+        SimulatedClock clock = new SimulatedClock(LocalDate.of(2026, 1, 1));
+        Checkout checkout = new Checkout(clock);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.registerPatron(patron);
+        patron.addCheckedOutBook("0000000001", LocalDate.of(2026, 1, 10));
+        patron.addCheckedOutBook("0000000002", LocalDate.of(2026, 2, 10));
+
+        assertEquals(0, checkout.updateOverdueCounts());
+        clock.advanceDays(10);
+        assertEquals(1, checkout.updateOverdueCounts());
+        clock.setToday(LocalDate.of(2026, 6, 1));
+        assertEquals(2, checkout.updateOverdueCounts());
+        assertEquals(0.0, checkout.validatePatronEligibility(patron), "Two overdue loans are below the 4.0 threshold");
+    }
+
+    @Test
+    @DisplayName("New patrons take their member date from the default clock")
+    public void testMemberDateUsesDefaultClock() {
+        LibraryClock.setDefault(new SimulatedClock(LocalDate.of(2030, 5, 17)));
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        assertEquals(LocalDate.of(2030, 5, 17), patron.getMemberSince());
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the table-driven loan policy and its hot reload.
+ */
+public class LoanPolicyTest {
+
+    @AfterEach
+    public void restoreDefaults() {
+        LoanPolicy.activate(LoanPolicy.defaults());
+    }
+
+    @Test
+    @DisplayName("Defaults match the documented limits and loan periods")
+    public void testDefaults() {
+        LoanPolicy policy = LoanPolicy.defaults();
+        assertEquals(20, policy.maxCheckoutLimit(Patron.PatronType.FACULTY));
+        assertEquals(15, policy.maxCheckoutLimit(Patron.PatronType.STAFF));
+        assertEquals(10, policy.maxCheckoutLimit(Patron.PatronType.STUDENT));
+        assertEquals(5, policy.maxCheckoutLimit(Patron.PatronType.PUBLIC));
+        assertEquals(3, policy.maxCheckoutLimit(Patron.PatronType.CHILD));
+        assertEquals(60, policy.loanPeriodDays(Patron.PatronType.FACULTY));
+        assertEquals(14, policy.loanPeriodDays(Patron.PatronType.CHILD));
+        assertEquals(18, policy.warningThreshold(Patron.PatronType.FACULTY));
+        assertEquals(21, policy.loanPeriodDays(null));
+    }
+
+    @Test
+    @DisplayName("Book-type override applies only to that patron/book pair")
+    public void testBookTypeOverride() {
+        Properties props = new Properties();
+        props.setProperty("STUDENT.TEXTBOOK.loanPeriodDays", "7");
+        LoanPolicy policy = LoanPolicy.fromProperties(props);
+
+        assertEquals(7, policy.loanPeriodDays(Patron.PatronType.STUDENT, Book.BookType.TEXTBOOK));
+        assertEquals(30, policy.loanPeriodDays(Patron.PatronType.STUDENT, Book.BookType.FICTION));
+        assertEquals(60, policy.loanPeriodDays(Patron.PatronType.FACULTY, Book.BookType.TEXTBOOK));
+    }
+
+    @Test
+    @DisplayName("Reload swaps the policy seen by existing patrons")
+    public void testReloadAffectsPatrons() throws IOException {
+        Patron patron = new Patron("P-10001", "Test Patron", "test@example.com", Patron.PatronType.PUBLIC);
+        assertEquals(5, patron.getMaxCheckoutLimit());
+
+        Path file = Files.createTempFile("loan-policy", ".properties");
+        try {
+            Files.writeString(file, "PUBLIC.maxCheckout=8\nPUBLIC.loanPeriodDays=28\n");
+            LoanPolicy.reload(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertEquals(8, patron.getMaxCheckoutLimit());
+        assertEquals(6, patron.getCheckoutWarningThreshold());
+        assertEquals(28, patron.getLoanPeriodDays());
+    }
+
+    @Test
+    @DisplayName("Invalid config is rejected and the active policy is kept")
+    public void testInvalidConfigKeepsActivePolicy() throws IOException {
+        LoanPolicy before = LoanPolicy.active();
+        Path file = Files.createTempFile("loan-policy", ".properties");
+        try {
+            Files.writeString(file, "PUBLIC.maxCheckout=-1\n");
+            assertThrows(IllegalArgumentException.class, () -> LoanPolicy.reload(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertSame(before, LoanPolicy.active());
+    }
+
+    @Test
+    @DisplayName("A branch policy applies only to patrons registered with that Checkout")
+    public void testBranchPolicy() throws IOException {
+        Checkout main = new Checkout();
+        Checkout branch = new Checkout();
+        Patron atMain = new Patron("P-10001", "Main Patron", "main@example.com", Patron.PatronType.PUBLIC);
+        Patron atBranch = new Patron("P-10002", "Branch Patron", "branch@example.com", Patron.PatronType.PUBLIC);
+        main.registerPatron(atMain);
+        branch.registerPatron(atBranch);
+
+        Path file = Files.createTempFile("loan-policy", ".properties");
+        try {
+            Files.writeString(file, "PUBLIC.maxCheckout=8\nPUBLIC.TEXTBOOK.loanPeriodDays=7\n");
+            branch.reloadLoanPolicy(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertEquals(5, atMain.getMaxCheckoutLimit());
+        assertEquals(21, atMain.getLoanPeriodDays(Book.BookType.TEXTBOOK));
+        assertEquals(8, atBranch.getMaxCheckoutLimit());
+        assertEquals(7, atBranch.getLoanPeriodDays(Book.BookType.TEXTBOOK));
+        assertSame(LoanPolicy.active(), main.getLoanPolicy());
+
+        // A JVM-wide reload reaches the main library but not the branch with its own policy
+        Properties props = new Properties();
+        props.setProperty("PUBLIC.maxCheckout", "6");
+        LoanPolicy.activate(LoanPolicy.fromProperties(props));
+        assertEquals(6, atMain.getMaxCheckoutLimit());
+        assertEquals(8, atBranch.getMaxCheckoutLimit());
+
+        assertNotNull(branch.setLoanPolicy(null));
+        assertEquals(6, atBranch.getMaxCheckoutLimit());
+    }
+
+    @Test
+    @DisplayName("Defaults are keyed by patron type, not by declaration order")
+    public void testDefaultsCoverEveryPatronType() {
+        LoanPolicy policy = LoanPolicy.defaults();
+        for (Patron.PatronType type : Patron.PatronType.values()) {
+            assertTrue(policy.maxCheckoutLimit(type) > LoanPolicy.WARNING_MARGIN);
+            assertTrue(policy.loanPeriodDays(type) > 0);
+        }
+        assertTrue(policy.toString().contains("CHILD=3/14d"));
+        assertTrue(policy.toString().contains("STAFF=15/45d"));
+    }
+}
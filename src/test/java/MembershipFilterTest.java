@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the membership filter and the filtered Checkout lookups.
+ */
+public class MembershipFilterTest {
+
+    @Test
+    @DisplayName("Added keys are never rejected")
+    public void testNoFalseNegatives() {
+        MembershipFilter filter = new MembershipFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("978-0-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("978-0-" + i), "Added key rejected: 978-0-" + i);
+        }
+        assertEquals(10_000, filter.size());
+    }
+
+    @Test
+    @DisplayName("Unknown keys are mostly rejected at the configured size")
+    public void testFalsePositiveRate() {
+        MembershipFilter filter = new MembershipFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("P-" + i);
+        }
+        int passed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("X-" + i)) {
+                passed++;
+            }
+        }
+        assertTrue(passed < 500, "Too many false positives: " + passed);
+        assertTrue(filter.getExpectedFalsePositiveRate() < 0.05);
+    }
+
+    @Test
+    @DisplayName("Checkout lookups reject unknown keys and track false positives")
+    public void testCheckoutFilteredLookups() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.addBook(book);
+        checkout.enableLookupFilters(100, 100);
+        checkout.registerPatron(patron);
+
+        assertSame(book, checkout.findBook("0123456789"));
+        assertSame(patron, checkout.findPatron("P-10001"));
+        assertNull(checkout.findBook("9999999999"));
+        assertNull(checkout.findPatron("P-99999"));
+        assertEquals(2, checkout.getBookFilter().getQueryCount());
+        assertEquals(1, checkout.getBookFilter().getRejectedCount() + checkout.getBookFilter().getFalsePositiveCount());
+    }
+
+    @Test
+    @DisplayName("Books put directly into the inventory map are still found")
+    public void testDirectInventoryChangeRebuildsFilter() {
+        Checkout checkout = new Checkout();
+        checkout.enableLookupFilters(100, 100);
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        checkout.getInventory().put(book.getIsbn(), book);
+
+        assertSame(book, checkout.findBook("0123456789"));
+    }
+
+    @Test
+    @DisplayName("A direct put followed by a remove does not hide the added key")
+    public void testDirectPutAndRemoveKeepSize() {
+        Checkout checkout = new Checkout();
+        Book old = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        checkout.addBook(old);
+        Patron leaving = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.registerPatron(leaving);
+        checkout.enableLookupFilters(100, 100);
+
+        Book book = new Book("9876543210", "Science Today", "John Roe", Book.BookType.NONFICTION, 2);
+        checkout.getInventory().put(book.getIsbn(), book);
+        checkout.getInventory().remove(old.getIsbn());
+        Patron joining = new Patron("P-20002", "Bob Smith", "bob@university.edu", Patron.PatronType.FACULTY);
+        checkout.getPatrons().put(joining.getPatronId(), joining);
+        checkout.getPatrons().remove(leaving.getPatronId());
+
+        assertSame(book, checkout.findBook("9876543210"));
+        assertNull(checkout.findBook("0123456789"));
+        assertSame(joining, checkout.findPatron("P-20002"));
+        assertNull(checkout.findPatron("P-10001"));
+    }
+
+    @Test
+    @DisplayName("Lookup statistics survive a filter rebuild")
+    public void testCountsSurviveRebuild() {
+        Checkout checkout = new Checkout();
+        checkout.enableLookupFilters(100, 100);
+        assertNull(checkout.findBook("9999999999"));
+        assertNull(checkout.findPatron("P-99999"));
+        MembershipFilter before = checkout.getBookFilter();
+
+        Book book = new Book("0123456789", "Mystery Novel", "Jane Doe", Book.BookType.FICTION, 5);
+        checkout.getInventory().put(book.getIsbn(), book);
+        Patron patron = new Patron("P-10001", "Alice Johnson", "alice@university.edu", Patron.PatronType.STUDENT);
+        checkout.getPatrons().put(patron.getPatronId(), patron);
+        assertSame(book, checkout.findBook("0123456789"));
+        assertSame(patron, checkout.findPatron("P-10001"));
+
+        assertNotSame(before, checkout.getBookFilter());
+        assertEquals(2, checkout.getBookFilter().getQueryCount());
+        assertEquals(1, checkout.getBookFilter().getRejectedCount() + checkout.getBookFilter().getFalsePositiveCount());
+        assertEquals(2, checkout.getPatronFilter().getQueryCount());
+        assertEquals(1,
+                checkout.getPatronFilter().getRejectedCount() + checkout.getPatronFilter().getFalsePositiveCount());
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the array-indexed patron registry.
+ */
+public class PatronRegistryTest {
+
+    private static Patron patron(String id) {
+        return new Patron(id, "Name " + id, id + "@university.edu", Patron.PatronType.STUDENT);
+    }
+
+    @Test
+    @DisplayName("Only P- followed by five digits is parsed")
+    public void testParseId() {
+        assertEquals(10001, PatronRegistry.parseId("P-10001"));
+        assertEquals(0, PatronRegistry.parseId("P-00000"));
+        assertEquals(-1, PatronRegistry.parseId("P001"));
+        assertEquals(-1, PatronRegistry.parseId("P-1000"));
+        assertEquals(-1, PatronRegistry.parseId("P-1000A"));
+        assertEquals(-1, PatronRegistry.parseId(null));
+    }
+
+    @Test
+    @DisplayName("Conforming and non-conforming IDs behave like a HashMap")
+    public void testMapBehaviour() {
+        PatronRegistry registry = new PatronRegistry();
+        Patron alice = patron("P-10001");
+        Patron legacy = patron("P001");
+        assertNull(registry.put("P-10001", alice));
+        assertNull(registry.put("P001", legacy));
+        registry.put(null, patron(null));
+
+        assertEquals(3, registry.size());
+        assertSame(alice, registry.get("P-10001"));
+        assertSame(alice, registry.get(10001));
+        assertSame(legacy, registry.get("P001"));
+        assertTrue(registry.containsKey(null));
+        assertFalse(registry.containsKey("P-10002"));
+        assertNull(registry.get(Integer.valueOf(10001)));
+
+        assertSame(alice, registry.remove("P-10001"));
+        assertNull(registry.get("P-10001"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    @DisplayName("Iteration visits P-XXXXX IDs in ascending order before other IDs")
+    public void testIterationOrder() {
+        PatronRegistry registry = new PatronRegistry();
+        for (String id : new String[] {"P-00420", "P001", "P-99999", "P-00007", "P-01000"}) {
+            registry.put(id, patron(id));
+        }
+        List<String> ids = new ArrayList<>(registry.keySet());
+        assertEquals(List.of("P-00007", "P-00420", "P-01000", "P-99999", "P001"), ids);
+
+        Iterator<Patron> it = registry.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getPatronId().startsWith("P-0")) {
+                it.remove();
+            }
+        }
+        assertEquals(List.of("P-99999", "P001"), new ArrayList<>(registry.keySet()));
+    }
+
+    @Test
+    @DisplayName("Checkout finds registered patrons through the registry")
+    public void testCheckoutUsesRegistry() {
+        Checkout checkout = new Checkout();
+        Patron alice = patron("P-10001");
+        checkout.registerPatron(alice);
+        checkout.registerPatron(patron("P001"));
+
+        assertTrue(checkout.getPatrons() instanceof PatronRegistry);
+        assertSame(alice, checkout.findPatron("P-10001"));
+        assertNotNull(checkout.findPatron("P001"));
+        assertEquals(alice.hashCode(), patron("P-10001").hashCode());
+    }
+}
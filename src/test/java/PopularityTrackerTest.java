@@ -0,0 +1,156 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Count-Min sketch and the sliding-window popularity tracker.
+ */
+public class PopularityTrackerTest {
+
+    /** Clock that only moves when told to. */
+    private static final class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        void advance(Duration d) {
+            millis += d.toMillis();
+        }
+    }
+
+    private static Book book(int i) {
+        return new Book(String.format("%010d", i), "Title " + i, "Author", Book.BookType.FICTION, 1);
+    }
+
+    @Test
+    @DisplayName("Sketch estimates never undercount and stay within the e/width bound")
+    public void testSketchOverestimateBound() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        int keys = 20_000;
+        for (int i = 0; i < keys; i++) {
+            sketch.add("key" + i, 1 + i % 5);
+        }
+        long bound = (long) Math.ceil(Math.E / 1024 * sketch.getTotal());
+        int outside = 0;
+        for (int i = 0; i < keys; i++) {
+            long error = sketch.estimate("key" + i) - (1 + i % 5);
+            assertTrue(error >= 0, "Estimates must never undercount");
+            if (error > bound) {
+                outside++;
+            }
+        }
+        // The bound holds with probability 1 - e^-4 (about 98%) per key
+        assertTrue(outside < keys * 0.02, outside + " keys exceeded the error bound");
+    }
+
+    @Test
+    @DisplayName("Subtracting an expired bucket removes exactly its counts")
+    public void testSketchSubtract() {
+        CountMinSketch window = new CountMinSketch(64, 3);
+        CountMinSketch bucket = new CountMinSketch(64, 3);
+        window.add("a", 5);
+        bucket.add("b", 3);
+        window.add("b", 3);
+        window.subtract(bucket);
+        assertEquals(5, window.estimate("a"));
+        assertEquals(5, window.getTotal());
+    }
+
+    @Test
+    @DisplayName("Counts slide out of the window bucket by bucket")
+    public void testWindowExpiry() {
+        ManualClock clock = new ManualClock();
+        PopularityTracker tracker = new PopularityTracker(clock, Duration.ofHours(4), 4, 10);
+        Book book = book(1);
+        tracker.recordAttempt(book, 0.0);
+        clock.advance(Duration.ofHours(2));
+        tracker.recordAttempt(book, 2.0);
+
+        assertEquals(2, tracker.getRequestCount(book.getIsbn()));
+        assertEquals(1, tracker.getUnavailableCount(book.getIsbn()));
+        assertEquals(1, tracker.getCirculation(Book.BookType.FICTION));
+
+        clock.advance(Duration.ofHours(2));
+        assertEquals(1, tracker.getRequestCount(book.getIsbn()), "First hour has expired");
+        assertEquals(0, tracker.getCirculation(Book.BookType.FICTION));
+
+        clock.advance(Duration.ofHours(2));
+        assertEquals(0, tracker.getRequestCount(book.getIsbn()));
+        assertTrue(tracker.getTopRequested(5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Top-K lists titles by request count and evicts the least requested")
+    public void testTopKOrder() {
+        ManualClock clock = new ManualClock();
+        PopularityTracker tracker = new PopularityTracker(clock, Duration.ofHours(1), 4, 3);
+        for (int i = 1; i <= 5; i++) {
+            for (int j = 0; j < i * 10; j++) {
+                tracker.recordAttempt(book(i), 0.0);
+            }
+        }
+        List<Map.Entry<String, Long>> top = tracker.getTopRequested(3);
+        assertEquals(3, top.size());
+        assertEquals(book(5).getIsbn(), top.get(0).getKey());
+        assertEquals(book(4).getIsbn(), top.get(1).getKey());
+        assertEquals(book(3).getIsbn(), top.get(2).getKey());
+        assertEquals(Long.valueOf(50), top.get(0).getValue());
+    }
+
+    @Test
+    @DisplayName("A new title enters a full top-K once the old leaders slide out of the window")
+    public void testTopKAfterWindowSlides() {
+        ManualClock clock = new ManualClock();
+        PopularityTracker tracker = new PopularityTracker(clock, Duration.ofHours(1), 4, 2);
+        for (int j = 0; j < 100; j++) {
+            tracker.recordAttempt(book(1), 0.0);
+            tracker.recordAttempt(book(2), 2.0);
+        }
+        clock.advance(Duration.ofHours(2));
+        for (int j = 0; j < 50; j++) {
+            tracker.recordAttempt(book(3), 2.0);
+        }
+
+        List<Map.Entry<String, Long>> top = tracker.getTopRequested(2);
+        assertEquals(1, top.size());
+        assertEquals(book(3).getIsbn(), top.get(0).getKey());
+        assertEquals(Long.valueOf(50), top.get(0).getValue());
+        List<Map.Entry<String, Long>> unavailable = tracker.getTopUnavailable(2);
+        assertEquals(1, unavailable.size());
+        assertEquals(book(3).getIsbn(), unavailable.get(0).getKey());
+    }
+
+    @Test
+    @DisplayName("Failed renewals and other negative codes are neither requests nor circulation")
+    public void testNegativeCodesIgnored() {
+        PopularityTracker tracker = new PopularityTracker(new ManualClock(), Duration.ofHours(1), 4, 3);
+        Book book = book(1);
+        tracker.recordAttempt(book, -1.0);
+        tracker.recordAttempt(book, 3.2);
+
+        assertEquals(1, tracker.getRequestCount(book.getIsbn()));
+        assertEquals(0, tracker.getCirculation(Book.BookType.FICTION));
+    }
+}
@@ -0,0 +1,235 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for due-date reminders: the index, digest grouping and delivery.
+ */
+public class ReminderPipelineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private Checkout checkout;
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        checkout = new Checkout(new SimulatedClock(TODAY));
+        for (int i = 0; i < 4; i++) {
+            checkout.addBook(new Book(isbn(i), "Title " + i, "Author " + i, Book.BookType.FICTION, 2));
+        }
+        dir = Files.createTempDirectory("reminders");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static String isbn(int i) {
+        return String.format("%010d", i);
+    }
+
+    private Patron patron(String id, String email) {
+        Patron patron = new Patron(id, "Patron " + id, email, Patron.PatronType.STUDENT);
+        checkout.registerPatron(patron);
+        return patron;
+    }
+
+    private static ReminderPipeline pipeline(ReminderSink sink, int batchSize, int maxAttempts) {
+        return new ReminderPipeline(sink, 2, batchSize, maxAttempts, Duration.ofMillis(1));
+    }
+
+    @Test
+    @DisplayName("All reminders for one patron go into one digest, split into overdue and due soon")
+    public void testDigestGrouping() {
+        Patron alice = patron("P-1", "alice@example.org");
+        alice.addCheckedOutBook(isbn(0), TODAY.minusDays(2));
+        alice.addCheckedOutBook(isbn(1), TODAY);
+        alice.addCheckedOutBook(isbn(2), TODAY.plusDays(3));
+        alice.addCheckedOutBook(isbn(3), TODAY.plusDays(4));
+        Patron bob = patron("P-2", "bob@example.org");
+        bob.addCheckedOutBook(isbn(0), TODAY.minusDays(1));
+        Patron carol = patron("P-3", "carol@example.org");
+        carol.addCheckedOutBook(isbn(1), TODAY.plusDays(10));
+
+        List<ReminderDigest> digests = pipeline(batch -> { }, 10, 1).collect(checkout, 3);
+
+        assertEquals(2, digests.size(), "Carol has nothing due within the window");
+        ReminderDigest forAlice = digests.stream().filter(d -> d.getPatron() == alice).findFirst().orElseThrow();
+        assertEquals(1, forAlice.getOverdue().size());
+        assertEquals(isbn(0), forAlice.getOverdue().get(0).getIsbn());
+        assertEquals(2, forAlice.getDueSoon().size());
+        assertEquals(isbn(1), forAlice.getDueSoon().get(0).getIsbn());
+        assertEquals(isbn(2), forAlice.getDueSoon().get(1).getIsbn());
+        assertTrue(forAlice.toMessage().contains("1 overdue, 2 due soon"));
+        ReminderDigest forBob = digests.stream().filter(d -> d.getPatron() == bob).findFirst().orElseThrow();
+        assertEquals(1, forBob.getOverdue().size());
+        assertTrue(forBob.getDueSoon().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Returned and renewed loans are pruned from the index")
+    public void testReturnedAndRenewedLoansPruned() {
+        Patron alice = patron("P-1", "alice@example.org");
+        alice.addCheckedOutBook(isbn(0), TODAY.minusDays(1));
+        alice.addCheckedOutBook(isbn(1), TODAY.plusDays(1));
+        alice.addCheckedOutBook(isbn(2), TODAY.plusDays(2));
+        DueDateIndex index = checkout.getDueDateIndex();
+        assertEquals(3, index.size());
+
+        alice.removeCheckedOutBook(isbn(0));
+        alice.addCheckedOutBook(isbn(1), TODAY.plusDays(30));
+
+        List<ReminderDigest> digests = pipeline(batch -> { }, 10, 1).collect(checkout, 3);
+        assertEquals(1, digests.size());
+        assertTrue(digests.get(0).getOverdue().isEmpty());
+        assertEquals(1, digests.get(0).getDueSoon().size());
+        assertEquals(isbn(2), digests.get(0).getDueSoon().get(0).getIsbn());
+        // The renewal's new entry stays; the returned loan and the old due date are gone
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    @DisplayName("A renewal written straight into the checked-out map keeps its reminders")
+    public void testDirectRenewalIsIndexed() {
+        Patron alice = patron("P-1", "alice@example.org");
+        alice.addCheckedOutBook(isbn(0), TODAY.plusDays(1));
+        alice.addCheckedOutBook(isbn(1), TODAY.plusDays(1));
+        alice.getCheckedOutBooks().put(isbn(0), TODAY.plusDays(10));
+        for (Map.Entry<String, LocalDate> loan : alice.getCheckedOutBooks().entrySet()) {
+            if (loan.getKey().equals(isbn(1))) {
+                loan.setValue(TODAY.plusDays(12));
+            }
+        }
+        ReminderPipeline pipeline = pipeline(batch -> { }, 10, 1);
+
+        assertTrue(pipeline.collect(checkout, 3).isEmpty());
+        List<ReminderDigest> later = pipeline.collect(checkout, TODAY.plusDays(10), 2);
+        assertEquals(1, later.size());
+        assertEquals(2, later.get(0).getDueSoon().size());
+        assertEquals(isbn(0), later.get(0).getDueSoon().get(0).getIsbn());
+        assertEquals(isbn(1), later.get(0).getDueSoon().get(1).getIsbn());
+    }
+
+    @Test
+    @DisplayName("A negative look-ahead is rejected")
+    public void testNegativeDaysAhead() {
+        ReminderPipeline pipeline = pipeline(batch -> { }, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.collect(checkout, -1));
+        assertTrue(pipeline.collect(checkout, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A failing sink is retried and a batch that never succeeds is counted as failed")
+    public void testRetriesWithFailingSink() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            patron("P-" + i, "p" + i + "@example.org").addCheckedOutBook(isbn(0), TODAY);
+        }
+        List<ReminderDigest> digests = pipeline(batch -> { }, 10, 1).collect(checkout, 0);
+        assertEquals(6, digests.size());
+
+        AtomicInteger calls = new AtomicInteger();
+        List<ReminderDigest> delivered = Collections.synchronizedList(new ArrayList<>());
+        ReminderSink flaky = batch -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new IOException("gateway unavailable");
+            }
+            delivered.addAll(batch);
+        };
+        ReminderPipeline.Report report = new ReminderPipeline(flaky, 1, 3, 3, Duration.ofMillis(1)).send(digests);
+        assertEquals(6, report.getDelivered());
+        assertEquals(0, report.getFailed());
+        assertEquals(2, report.getRetries());
+        assertEquals(6, delivered.size());
+
+        ReminderSink down = batch -> {
+            throw new IOException("gateway down");
+        };
+        ReminderPipeline failing = pipeline(down, 4, 3);
+        List<Integer> failedBatches = Collections.synchronizedList(new ArrayList<>());
+        failing.setFailureHandler((batch, e) -> failedBatches.add(batch.size()));
+        ReminderPipeline.Report failed = failing.send(digests);
+        assertEquals(0, failed.getDelivered());
+        assertEquals(6, failed.getFailed());
+        assertEquals(4, failed.getRetries(), "Two batches, two retries each");
+        assertEquals(2, failedBatches.size());
+        assertEquals(6, failedBatches.get(0) + failedBatches.get(1));
+    }
+
+    @Test
+    @DisplayName("send() gives up at its deadline and counts batches that never started")
+    public void testSendTimeout() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            patron("P-" + i, "p" + i + "@example.org").addCheckedOutBook(isbn(0), TODAY);
+        }
+        CountDownLatch never = new CountDownLatch(1);
+        ReminderSink stuck = batch -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("delivery interrupted", e);
+            }
+        };
+        ReminderPipeline pipeline = new ReminderPipeline(stuck, 1, 1, 1, Duration.ofMillis(1));
+
+        ReminderPipeline.Report report = pipeline.send(pipeline.collect(checkout, 0), Duration.ofMillis(200));
+        assertTrue(report.isTimedOut());
+        assertEquals(0, report.getDelivered());
+        assertTrue(report.getFailed() >= 2, "The two batches still queued are failed");
+    }
+
+    @Test
+    @DisplayName("Patrons without an email address are skipped")
+    public void testSkipsPatronsWithoutEmail() throws Exception {
+        patron("P-1", "alice@example.org").addCheckedOutBook(isbn(0), TODAY);
+        patron("P-2", null).addCheckedOutBook(isbn(0), TODAY);
+        patron("P-3", " ").addCheckedOutBook(isbn(0), TODAY);
+        ReminderPipeline pipeline = pipeline(batch -> { }, 10, 1);
+
+        ReminderPipeline.Report report = pipeline.send(pipeline.collect(checkout, 0));
+        assertEquals(1, report.getDelivered());
+        assertEquals(2, report.getSkippedNoEmail());
+    }
+
+    @Test
+    @DisplayName("The file sink writes one message per digest")
+    public void testFileSink() throws Exception {
+        Patron alice = patron("P-1", "alice@example.org");
+        alice.addCheckedOutBook(isbn(0), TODAY.minusDays(1));
+        alice.addCheckedOutBook(isbn(1), TODAY.plusDays(1));
+        patron("P-2", "bob@example.org").addCheckedOutBook(isbn(2), TODAY);
+        Path out = dir.resolve("outbox.txt");
+        ReminderPipeline pipeline = pipeline(new FileReminderSink(out), 1, 1);
+
+        ReminderPipeline.Report report = pipeline.send(pipeline.collect(checkout, 3));
+        assertEquals(2, report.getDelivered());
+
+        String written = Files.readString(out, StandardCharsets.UTF_8);
+        assertTrue(written.contains("To: alice@example.org\nSubject: Library reminder: 1 overdue, 1 due soon\n"));
+        assertTrue(written.contains("  - Title 0 (" + isbn(0) + "), due " + TODAY.minusDays(1)));
+        assertTrue(written.contains("To: bob@example.org\nSubject: Library reminder: 0 overdue, 1 due soon\n"));
+        assertEquals(2, written.split("To: ", -1).length - 1);
+    }
+}
@@ -0,0 +1,321 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for leader/follower replication through a shared log file.
+ */
+public class ReplicationTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private Path dir;
+    private Path log;
+    private final List<AutoCloseable> open = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("replication");
+        log = dir.resolve("checkout.log");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (AutoCloseable c : open) {
+            c.close();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private ReplicationLeader leader(Checkout checkout) throws IOException {
+        ReplicationLeader leader = new ReplicationLeader(checkout, log);
+        open.add(leader);
+        return leader;
+    }
+
+    private ReplicationFollower follower() {
+        ReplicationFollower follower = new ReplicationFollower(log, LibraryClock.getDefault(), 5);
+        open.add(follower);
+        return follower;
+    }
+
+    private static Book book(int i, int copies) {
+        return new Book(String.format("%010d", i), "Title " + i, "Author " + i, Book.BookType.FICTION, copies);
+    }
+
+    private static void eventually(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Books, patrons, loans and fines reach the follower")
+    public void testRoundTrip() throws Exception {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-1234-5678-9", "Intro\tto\nJava", "John Smith", Book.BookType.TEXTBOOK, 3);
+        checkout.addBook(book);
+        ReplicationLeader leader = leader(checkout);
+        ReplicationFollower follower = follower();
+
+        Patron patron = new Patron("P-10001", "Alice Johnson", null, Patron.PatronType.STUDENT);
+        leader.registerPatron(patron);
+        int copyId = book.checkoutCopy();
+        patron.addCheckedOutBook(book.getIsbn(), LocalDate.of(2026, 3, 1), copyId);
+        leader.publishBook(book);
+        leader.addFine(patron, 1.25);
+
+        assertTrue(follower.awaitApplied(leader.getLastSequence(), TIMEOUT_MILLIS));
+        follower.read(replica -> {
+            Book b = replica.getInventory().get(book.getIsbn());
+            assertEquals("Intro\tto\nJava", b.getTitle());
+            assertEquals(2, b.getAvailableCopies());
+            assertFalse(b.isCopyAvailable(copyId));
+            Patron p = replica.getPatrons().get("P-10001");
+            assertNull(p.getEmail());
+            assertEquals(1.25, p.getFineBalance(), 0.0001);
+            assertEquals(LocalDate.of(2026, 3, 1), p.getCheckedOutBooks().get(book.getIsbn()));
+            assertEquals(copyId, p.getCheckedOutCopy(book.getIsbn()));
+            return null;
+        });
+        assertEquals(leader.getLastSequence(), follower.getAppliedSequence());
+    }
+
+    @Test
+    @DisplayName("Null types, emails and ISBNs survive the round trip")
+    public void testRoundTripNulls() throws Exception {
+        Checkout checkout = new Checkout();
+        Book untyped = new Book("0000000001", "Untyped", "Nobody", null, 2);
+        Book unnumbered = new Book(null, "No ISBN", "Nobody", Book.BookType.FICTION, 1);
+        checkout.addBook(untyped);
+        checkout.addBook(unnumbered);
+        ReplicationLeader leader = leader(checkout);
+        ReplicationFollower follower = follower();
+
+        Patron patron = new Patron("P-1", "No Type", null, null);
+        patron.addCheckedOutBook(null, LocalDate.of(2026, 3, 1));
+        leader.registerPatron(patron);
+        leader.addBook(new Book("0000000002", "After", "Nobody", Book.BookType.FICTION, 1));
+
+        assertTrue(follower.awaitApplied(leader.getLastSequence(), TIMEOUT_MILLIS));
+        follower.read(replica -> {
+            Book b = replica.getInventory().get("0000000001");
+            assertNull(b.getType());
+            assertEquals(2, b.getAvailableCopies());
+            assertEquals("No ISBN", replica.getInventory().get(null).getTitle());
+            Patron p = replica.getPatrons().get("P-1");
+            assertNull(p.getType());
+            assertNull(p.getEmail());
+            assertEquals(LocalDate.of(2026, 3, 1), p.getCheckedOutBooks().get(null));
+            assertNotNull(replica.getInventory().get("0000000002"));
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("A read at the writer's sequence sees that write")
+    public void testReadYourWrites() throws Exception {
+        Checkout checkout = new Checkout();
+        ReplicationLeader leader = leader(checkout);
+        ReplicationFollower follower = follower();
+        for (int i = 0; i < 200; i++) {
+            leader.addBook(book(i, 1 + i % 3));
+            String isbn = String.format("%010d", i);
+            Book seen = follower.read(leader.getLastSequence(), TIMEOUT_MILLIS, c -> c.getInventory().get(isbn));
+            assertNotNull(seen, "Book " + i + " should be visible after its write");
+        }
+        assertTrue(follower.getStalenessMillis() < TIMEOUT_MILLIS);
+    }
+
+    @Test
+    @DisplayName("A torn record from a crashed leader is dropped when the next leader starts")
+    public void testTornTrailingRecord() throws Exception {
+        Checkout checkout = new Checkout();
+        ReplicationLeader first = leader(checkout);
+        ReplicationFollower follower = follower();
+        for (int i = 0; i < 5; i++) {
+            first.addBook(book(i, 2));
+        }
+        assertTrue(follower.awaitApplied(first.getLastSequence(), TIMEOUT_MILLIS));
+        first.close();
+        Files.write(log, "999\t1\t999\tBOOK\t0000000099\tTorn".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        Thread.sleep(50);
+
+        ReplicationLeader second = leader(checkout);
+        second.addBook(book(5, 2));
+
+        assertTrue(follower.awaitApplied(second.getLastSequence(), TIMEOUT_MILLIS));
+        assertEquals(second.getLastSequence(), follower.getAppliedSequence());
+        assertNotNull(follower.read(c -> c.getInventory().get("0000000005")));
+        assertNull(follower.read(c -> c.getInventory().get("0000000099")));
+        assertNull(follower.getFailure());
+    }
+
+    @Test
+    @DisplayName("A leader restart drops the complete lines of an unfinished write")
+    public void testUnfinishedWrite() throws Exception {
+        Checkout checkout = new Checkout();
+        ReplicationLeader first = leader(checkout);
+        first.addBook(book(0, 1));
+        long committed = first.getLastSequence();
+        first.close();
+        // First line of a two-record write whose second line never made it
+        Files.write(log, ((committed + 1) + "\t1\t" + (committed + 2) + "\tBOOK\t0000000099\tT\tA\tFICTION\t1\t1\t1\n")
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ReplicationLeader second = leader(checkout);
+        assertEquals(committed + 1, second.getLastSequence(), "publishAll continues right after the last write");
+        ReplicationFollower follower = follower();
+        assertTrue(follower.awaitApplied(second.getLastSequence(), TIMEOUT_MILLIS));
+        assertNull(follower.read(c -> c.getInventory().get("0000000099")));
+    }
+
+    @Test
+    @DisplayName("A leader restart replaces the log with one copy of the state")
+    public void testRestartCompactsLog() throws Exception {
+        Checkout checkout = new Checkout();
+        for (int i = 0; i < 50; i++) {
+            checkout.addBook(book(i, 2));
+        }
+        ReplicationLeader first = leader(checkout);
+        long size = Files.size(log);
+        for (int i = 0; i < 20; i++) {
+            first.publishAll();
+        }
+        long last = first.getLastSequence();
+        first.close();
+        ReplicationFollower follower = follower();
+
+        for (int restart = 0; restart < 3; restart++) {
+            ReplicationLeader leader = leader(checkout);
+            // Longer sequence numbers make the records a little larger, but there is only one copy
+            assertTrue(Files.size(log) < size * 3 / 2, "Only the current state is kept");
+            assertEquals(last + 50, leader.getLastSequence(), "Sequence numbers continue across restarts");
+            last = leader.getLastSequence();
+            leader.close();
+        }
+        assertFalse(Files.exists(dir.resolve("checkout.log.compact")));
+        assertTrue(follower.awaitApplied(last, TIMEOUT_MILLIS));
+        assertEquals(50, (int) follower.read(c -> c.getInventory().size()));
+    }
+
+    @Test
+    @DisplayName("A follower rebuilds its replica when the log file is replaced")
+    public void testReplacedLog() throws Exception {
+        Checkout original = new Checkout();
+        ReplicationLeader first = leader(original);
+        ReplicationFollower follower = follower();
+        for (int i = 0; i < 10; i++) {
+            first.addBook(book(i, 1));
+        }
+        assertTrue(follower.awaitApplied(first.getLastSequence(), TIMEOUT_MILLIS));
+        first.close();
+
+        Path fresh = dir.resolve("fresh.log");
+        Checkout replacement = new Checkout();
+        replacement.addBook(book(100, 4));
+        new ReplicationLeader(replacement, fresh).close();
+        Files.move(fresh, log, StandardCopyOption.REPLACE_EXISTING);
+
+        eventually(() -> follower.read(c -> c.getInventory().size() == 1 && c.getInventory().containsKey("0000000100")),
+                "Follower should hold only the replacement log's state");
+        assertEquals(1, follower.getAppliedSequence());
+        assertNull(follower.getFailure());
+    }
+
+    @Test
+    @DisplayName("Staleness is unbounded while a replaced log is being rebuilt")
+    public void testStalenessDuringResync() throws Exception {
+        Checkout checkout = new Checkout();
+        checkout.addBook(book(0, 1));
+        leader(checkout).close();
+        ReplicationFollower follower = follower();
+        eventually(() -> follower.getStalenessMillis() < TIMEOUT_MILLIS, "Follower should catch up");
+
+        // The replacement log's first write is still missing its second record
+        Path fresh = dir.resolve("fresh.log");
+        Files.write(fresh, "1\t1\t2\tBOOK\t0000000001\tT\tA\tFICTION\t1\t1\t1\n".getBytes(StandardCharsets.UTF_8));
+        Files.move(fresh, log, StandardCopyOption.REPLACE_EXISTING);
+        eventually(() -> follower.read(c -> c.getInventory().isEmpty()), "Follower should drop the old replica");
+        assertEquals(Long.MAX_VALUE, follower.getStalenessMillis());
+        Thread.sleep(50);
+        assertEquals(Long.MAX_VALUE, follower.getStalenessMillis());
+
+        Files.write(log, "2\t1\t2\tBOOK\t0000000002\tT\tA\tFICTION\t1\t1\t1\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        assertTrue(follower.awaitApplied(2, TIMEOUT_MILLIS));
+        eventually(() -> follower.getStalenessMillis() < TIMEOUT_MILLIS, "Follower should catch up again");
+        assertEquals(2, (int) follower.read(c -> c.getInventory().size()));
+        assertNull(follower.getFailure());
+    }
+
+    @Test
+    @DisplayName("Closing a follower is not reported as a failure")
+    public void testCloseIsNotAFailure() throws Exception {
+        Checkout checkout = new Checkout();
+        for (int i = 0; i < 5000; i++) {
+            checkout.addBook(book(i, 1));
+        }
+        leader(checkout);
+        for (int i = 0; i < 20; i++) {
+            ReplicationFollower follower = new ReplicationFollower(log, LibraryClock.getDefault(), 1);
+            Thread.sleep(i % 3);
+            follower.close();
+            assertNull(follower.getFailure());
+        }
+    }
+
+    @Test
+    @DisplayName("A follower in another JVM tails the same log")
+    public void testFollowerInAnotherJvm() throws Exception {
+        Checkout checkout = new Checkout();
+        ReplicationLeader leader = leader(checkout);
+        for (int i = 0; i < 3; i++) {
+            leader.addBook(book(i, 1));
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "ReplicationFollower", log.toString()).redirectErrorStream(true).start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            leader.addBook(book(3, 1));
+            String line;
+            boolean caughtUp = false;
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!caughtUp && System.currentTimeMillis() < deadline && (line = out.readLine()) != null) {
+                caughtUp = line.contains("applied=" + leader.getLastSequence()) && line.contains("books=4");
+            }
+            assertTrue(caughtUp, "Follower process should report all four books");
+        } finally {
+            process.destroy();
+            process.waitFor(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
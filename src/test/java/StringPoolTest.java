@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the weak string interning pool.
+ */
+public class StringPoolTest {
+
+    private static String isbn(int i) {
+        return String.format("%010d", i);
+    }
+
+    @Test
+    @DisplayName("Equal strings are answered with the first instance")
+    public void testCanonicalInstance() {
+        StringPool pool = new StringPool();
+        String first = new String("0123456789");
+        String second = new String("0123456789");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(first));
+        assertNull(pool.intern(null));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getHitCount(), "Interning the canonical instance itself saves nothing");
+        // String header plus a 10-byte Latin-1 array padded to 32 bytes
+        assertEquals(24 + 32, pool.getEstimatedBytesSaved());
+    }
+
+    @Test
+    @DisplayName("Loans of the same title share one ISBN instance")
+    public void testLoanKeysShareInstances() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            books.add(new Book(isbn(i), "Title " + i, "Author " + i, Book.BookType.FICTION, 100));
+        }
+        Set<String> keys = Collections.newSetFromMap(new IdentityHashMap<>());
+        int loans = 0;
+        for (int p = 0; p < 100; p++) {
+            Patron patron = new Patron("P-" + p, "Patron " + p, null, Patron.PatronType.FACULTY);
+            for (int i = 0; i < books.size(); i++) {
+                // Each loan arrives with its own copy of the ISBN, as it would from a request
+                patron.addCheckedOutBook(new String(isbn(i)), LocalDate.of(2026, 3, 1));
+                loans++;
+            }
+            keys.addAll(patron.getCheckedOutBooks().keySet());
+        }
+
+        assertEquals(1000, loans);
+        assertEquals(books.size(), keys.size(), "One ISBN instance per title, not per loan");
+        for (Book book : books) {
+            assertTrue(keys.contains(book.getIsbn()));
+        }
+    }
+
+    @Test
+    @DisplayName("Only the ISBN of a Book is pooled")
+    public void testOnlyIsbnPooled() {
+        String title = new String("A Title Held Once");
+        String author = new String("An Author Held Once");
+        Book book = new Book(isbn(424242), title, author, Book.BookType.FICTION, 1);
+        assertSame(title, book.getTitle());
+        assertSame(author, book.getAuthor());
+        // Had the Book pooled its title, interning an equal string would return that instance
+        assertNotSame(title, StringPool.CATALOG.intern(new String(title)));
+    }
+
+    @Test
+    @DisplayName("Entries are dropped once nothing else uses the string")
+    public void testUnusedEntriesReclaimed() throws InterruptedException {
+        StringPool pool = new StringPool();
+        for (int i = 0; i < 1000; i++) {
+            pool.intern(new String(isbn(i)));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.size() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.size());
+        String kept = pool.intern(new String(isbn(0)));
+        assertSame(kept, pool.intern(new String(isbn(0))));
+    }
+}